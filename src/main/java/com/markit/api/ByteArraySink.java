@@ -0,0 +1,35 @@
+package com.markit.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Collects the result in memory, for the operations returning a byte array.
+ * A finished file is read in one go instead of being copied through a growing buffer.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class ByteArraySink implements OutputSink {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private byte[] transferred;
+
+    @Override
+    public OutputStream open() {
+        transferred = null;
+        return buffer;
+    }
+
+    @Override
+    public void transfer(Path file) throws IOException {
+        transferred = Files.readAllBytes(file);
+    }
+
+    public byte[] toByteArray() {
+        return transferred != null ? transferred : buffer.toByteArray();
+    }
+}
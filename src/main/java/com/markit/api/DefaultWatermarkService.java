@@ -2,6 +2,7 @@ package com.markit.api;
 
 import com.markit.api.formats.image.WatermarkImageBuilder;
 import com.markit.api.formats.image.WatermarkImageService;
+import com.markit.api.formats.pdf.PdfMemoryPolicy;
 import com.markit.api.formats.pdf.WatermarkPDFBuilder;
 import com.markit.api.formats.pdf.WatermarkPDFService;
 import com.markit.api.formats.video.WatermarkVideoBuilder;
@@ -11,6 +12,7 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 
 /**
@@ -35,7 +37,7 @@ public class DefaultWatermarkService implements WatermarkService.FileFormatSelec
     @Override
     public WatermarkPDFService watermarkPDF(byte[] fileBytes) {
         try {
-            return new WatermarkPDFBuilder(PDDocument.load(fileBytes), executor);
+            return new WatermarkPDFBuilder(PDDocument.load(fileBytes), executor).loadedFrom(fileBytes);
         } catch (IOException e) {
             throw new InvalidPDFFileException(e);
         }
@@ -44,7 +46,29 @@ public class DefaultWatermarkService implements WatermarkService.FileFormatSelec
     @Override
     public WatermarkPDFService watermarkPDF(File file) {
         try {
-            return new WatermarkPDFBuilder(PDDocument.load(file), executor);
+            return new WatermarkPDFBuilder(PDDocument.load(file), executor).loadedFrom(file);
+        } catch (IOException e) {
+            throw new InvalidPDFFileException(e);
+        }
+    }
+
+    @Override
+    public WatermarkPDFService watermarkPDF(byte[] fileBytes, PdfMemoryPolicy memoryPolicy) {
+        Objects.requireNonNull(memoryPolicy, "memoryPolicy is required");
+        try {
+            var document = PDDocument.load(fileBytes, "", null, null, memoryPolicy.toMemoryUsageSetting());
+            return new WatermarkPDFBuilder(document, executor, memoryPolicy).loadedFrom(fileBytes);
+        } catch (IOException e) {
+            throw new InvalidPDFFileException(e);
+        }
+    }
+
+    @Override
+    public WatermarkPDFService watermarkPDF(File file, PdfMemoryPolicy memoryPolicy) {
+        Objects.requireNonNull(memoryPolicy, "memoryPolicy is required");
+        try {
+            return new WatermarkPDFBuilder(PDDocument.load(file, memoryPolicy.toMemoryUsageSetting()), executor, memoryPolicy)
+                    .loadedFrom(file);
         } catch (IOException e) {
             throw new InvalidPDFFileException(e);
         }
@@ -55,6 +79,11 @@ public class DefaultWatermarkService implements WatermarkService.FileFormatSelec
         return new WatermarkPDFBuilder(document, executor);
     }
 
+    @Override
+    public WatermarkPDFService watermarkPDF(PDDocument document, boolean closeDocument) {
+        return new WatermarkPDFBuilder(document, executor, closeDocument);
+    }
+
     @Override
     public WatermarkImageService watermarkImage(File file) {
         return new WatermarkImageBuilder(file);
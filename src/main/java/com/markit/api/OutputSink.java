@@ -0,0 +1,102 @@
+package com.markit.api;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * The destination a watermarked file is written to.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface OutputSink {
+
+    /**
+     * Opens the stream the result is written to. The caller closes it.
+     * Closing it never closes a stream or a channel the sink was created for.
+     * The stream of a file or a channel is buffered, since PDFBox writes a document token by token.
+     */
+    OutputStream open() throws IOException;
+
+    /**
+     * Hands over a finished file. The file may be moved, so the caller must not rely on it afterwards.
+     */
+    default void transfer(Path file) throws IOException {
+        try (var output = open()) {
+            Files.copy(file, output);
+        }
+    }
+
+    /**
+     * A sink writing to the stream, which stays open
+     */
+    static OutputSink of(OutputStream output) {
+        Objects.requireNonNull(output, "output is required");
+        return () -> nonClosing(output);
+    }
+
+    /**
+     * A sink writing to the file, replacing it if it exists. A finished file is moved there.
+     */
+    static OutputSink of(Path path) {
+        Objects.requireNonNull(path, "path is required");
+        return new OutputSink() {
+            @Override
+            public OutputStream open() throws IOException {
+                return new BufferedOutputStream(Files.newOutputStream(path));
+            }
+
+            @Override
+            public void transfer(Path file) throws IOException {
+                Files.move(file, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        };
+    }
+
+    /**
+     * A sink writing to the channel, which stays open. A finished file is transferred by the file system.
+     */
+    static OutputSink of(WritableByteChannel channel) {
+        Objects.requireNonNull(channel, "channel is required");
+        return new OutputSink() {
+            @Override
+            public OutputStream open() {
+                return nonClosing(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            }
+
+            @Override
+            public void transfer(Path file) throws IOException {
+                try (var input = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = input.size();
+                    for (long position = 0; position < size; ) {
+                        position += input.transferTo(position, size - position, channel);
+                    }
+                }
+            }
+        };
+    }
+
+    private static OutputStream nonClosing(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
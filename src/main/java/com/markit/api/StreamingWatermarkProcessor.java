@@ -0,0 +1,24 @@
+package com.markit.api;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link WatermarkProcessor} writing the result to the sink directly
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+@FunctionalInterface
+public interface StreamingWatermarkProcessor extends WatermarkProcessor {
+
+    @Override
+    void apply(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException;
+
+    @Override
+    default byte[] apply(List<WatermarkAttributes> watermarks) throws IOException {
+        var sink = new ByteArraySink();
+        apply(watermarks, sink);
+        return sink.toByteArray();
+    }
+}
@@ -1,7 +1,10 @@
 package com.markit.api
 
+import com.markit.api.formats.pdf.AdaptiveDpi
 import com.markit.api.positioning.Coordinates
 import com.markit.api.positioning.WatermarkPosition
+import com.markit.pdf.overlay.resources.DocumentResourcePool
+import com.markit.pdf.overlay.resources.TextMetrics
 import org.apache.pdfbox.pdmodel.PDDocument
 import org.apache.pdfbox.pdmodel.font.PDFont
 import java.awt.Color
@@ -34,7 +37,12 @@ data class WatermarkAttributes (
     var visible: Boolean = true,
     var isBold: Boolean = false,
     var adjustTextSizeCf: Float = 2.5f,
-    var cyrillicFont: PDFont? = null
+    var cyrillicFont: PDFont? = null,
+    var tilingPattern: Boolean = false,
+    var adaptiveDpi: AdaptiveDpi? = null,
+    var pageByteBudget: Long = 0,
+    var outlineText: Boolean = false,
+    var recordFingerprint: Boolean = false
 ) {
     //virtual attributes
     val isTextWatermark: Boolean
@@ -43,9 +51,21 @@ data class WatermarkAttributes (
     val isImageWatermark: Boolean
         get() = image.isPresent && visible
 
+    val isTilingPattern: Boolean
+        get() = tilingPattern && position == WatermarkPosition.TILED && !customCoordinates
+
+    val isOutlineText: Boolean
+        get() = outlineText && image.isEmpty
+
     val isCyrillic: Boolean
         get() = text.any { Character.UnicodeBlock.of(it) == Character.UnicodeBlock.CYRILLIC }
 
+    /**
+     * Whether the text has characters of a script other than Latin, which the standard PDF fonts can't show
+     */
+    val isNonLatin: Boolean
+        get() = text.codePoints().anyMatch { Character.UnicodeScript.of(it) !in STANDARD_SCRIPTS }
+
     /**
      * The opacity expressed as a fraction in the range 0.0 (fully transparent) to 1.0 (fully opaque),
      * clamping any out-of-range percentage. Used by renderers that expect a normalized alpha value.
@@ -53,22 +73,35 @@ data class WatermarkAttributes (
     val opacityFraction: Float
         get() = opacity.coerceIn(0, 100) / 100f
 
-    val resolvedPdfFont
-        get() = when {
-            isCyrillic -> requireNotNull(cyrillicFont) { "Cyrillic font must be provided for Cyrillic text" }
-            isBold -> font.boldPdFont
-            else -> font.pdFont
-        }
+    @Deprecated("The font of a document is kept by its DocumentResourcePool, see DocumentResourcePool.font")
+    val resolvedPdfFont: PDFont
+        get() = DocumentResourcePool.sharedFont(this)
 
+    @Deprecated("Measured with the font of the document, see DocumentResourcePool.textMetrics")
     val pdfWatermarkTextWidth: Float
-        get() = resolvedPdfFont.getStringWidth(text) / 1000f * size / adjustTextSizeCf
+        get() = TextMetrics.of(DocumentResourcePool.sharedFont(this), this).width
 
+    @Deprecated("Measured with the font of the document, see DocumentResourcePool.textMetrics")
     val pdfWatermarkTextHeight: Float
-        get() = resolvedPdfFont.fontDescriptor.capHeight / 1000f * size / adjustTextSizeCf
+        get() = TextMetrics.of(DocumentResourcePool.sharedFont(this), this).height
 
     val pdfTextSize: Float
         get() = size / adjustTextSizeCf
 
     val imageTextSize: Float
         get() = size * 1.7f
-}
\ No newline at end of file
+
+    /**
+     * A copy for watermarking another document at the same time. The font loaded into this document
+     * is left out, the copy loads its own.
+     */
+    fun copyForDocument() = copy(cyrillicFont = null)
+
+    /**
+     * A copy whose byte budget is at most the given one
+     */
+    fun withPageByteBudget(bytes: Long) =
+        copy(pageByteBudget = if (pageByteBudget > 0) minOf(pageByteBudget, bytes) else bytes)
+}
+
+private val STANDARD_SCRIPTS = setOf(Character.UnicodeScript.LATIN, Character.UnicodeScript.COMMON, Character.UnicodeScript.INHERITED)
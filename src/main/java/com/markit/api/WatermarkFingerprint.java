@@ -0,0 +1,140 @@
+package com.markit.api;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact fingerprint of the watermarks applied to a file, stored in its metadata, so that a file
+ * that already carries the same watermarks can be recognized without watermarking it again.
+ * <p>
+ * The fingerprint is the first 128 bits of a SHA-256 hash of everything that shapes the watermarks,
+ * the pixels of the watermark images included, prefixed with the name of the library.
+ * Predicates take no part: they choose what is watermarked, they don't change the watermarks.
+ * </p>
+ * <p>
+ * The fingerprint is recorded only when a watermark asks for it, see {@link #isRecorded(List)}.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class WatermarkFingerprint {
+    private static final String PREFIX = "WatermarkIt:";
+    private static final int LENGTH = 16;
+
+    private WatermarkFingerprint() {
+    }
+
+    /**
+     * @param attrs the watermarks applied to the file
+     * @return the fingerprint, e.g. {@code WatermarkIt:3f1c...}
+     */
+    public static String of(List<WatermarkAttributes> attrs) {
+        var digest = sha256();
+        Map<BufferedImage, byte[]> imageDigests = new IdentityHashMap<>();
+        for (WatermarkAttributes attr : attrs) {
+            hash(digest, attr, imageDigests);
+        }
+        var hex = new StringBuilder(PREFIX);
+        var hash = digest.digest();
+        for (int i = 0; i < LENGTH; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Whether the fingerprint of the watermarks is written into the file. Builders ask for it
+     * when the file is to be skipped once it carries the same watermarks.
+     */
+    public static boolean isRecorded(List<WatermarkAttributes> attrs) {
+        return attrs.stream().anyMatch(WatermarkAttributes::getRecordFingerprint);
+    }
+
+    /**
+     * Whether the text is a fingerprint of this library, as opposed to any other comment of the file
+     */
+    public static boolean isFingerprint(String text) {
+        return text != null && text.startsWith(PREFIX);
+    }
+
+    /**
+     * Hashes what shapes the watermark into the digest
+     *
+     * @param imageDigests the digests of the watermark images computed so far, a watermark image
+     *                     is usually shared by many watermarks
+     */
+    public static void hash(MessageDigest digest, WatermarkAttributes attr, Map<BufferedImage, byte[]> imageDigests) {
+        hashString(digest, attr.getMethod().name());
+        hashString(digest, attr.getText());
+        hashInt(digest, attr.getSize());
+        hashInt(digest, attr.getColor().getRGB());
+        hashInt(digest, attr.getOpacity());
+        hashString(digest, attr.getFont().name());
+        hashInt(digest, attr.isBold() ? 1 : 0);
+        hashFloat(digest, attr.getDpi());
+        hashInt(digest, attr.getTrademark() ? 1 : 0);
+        hashInt(digest, attr.getRotationDegrees());
+        hashString(digest, attr.getPosition().name());
+        hashInt(digest, attr.getPositionCoordinates().getX());
+        hashInt(digest, attr.getPositionCoordinates().getY());
+        hashInt(digest, attr.getCustomCoordinates() ? 1 : 0);
+        hashInt(digest, attr.getVerticalSpacing());
+        hashInt(digest, attr.getHorizontalSpacing());
+        hashFloat(digest, attr.getAdjustTextSizeCf());
+        hashInt(digest, attr.getTilingPattern() ? 1 : 0);
+        hashInt(digest, attr.getOutlineText() ? 1 : 0);
+        var adaptiveDpi = attr.getAdaptiveDpi();
+        hashFloat(digest, adaptiveDpi == null ? 0 : adaptiveDpi.getMinDpi());
+        hashFloat(digest, adaptiveDpi == null ? 0 : adaptiveDpi.getMaxDpi());
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(attr.getPageByteBudget()).array());
+        attr.getImage().ifPresentOrElse(image -> digest.update(imageDigest(image, imageDigests)), () -> hashInt(digest, 0));
+    }
+
+    private static byte[] imageDigest(BufferedImage image, Map<BufferedImage, byte[]> imageDigests) {
+        synchronized (imageDigests) {
+            var imageDigest = imageDigests.get(image);
+            if (imageDigest == null) {
+                var pixelDigest = sha256();
+                var row = ByteBuffer.allocate(image.getWidth() * Integer.BYTES);
+                for (int y = 0; y < image.getHeight(); y++) {
+                    row.clear();
+                    row.asIntBuffer().put(image.getRGB(0, y, image.getWidth(), 1, null, 0, image.getWidth()));
+                    pixelDigest.update(row.array());
+                }
+                imageDigest = pixelDigest.digest();
+                imageDigests.put(image, imageDigest);
+            }
+            return imageDigest;
+        }
+    }
+
+    private static void hashString(MessageDigest digest, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        hashInt(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void hashFloat(MessageDigest digest, float value) {
+        hashInt(digest, Float.floatToIntBits(value));
+    }
+
+    private static void hashInt(MessageDigest digest, int value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
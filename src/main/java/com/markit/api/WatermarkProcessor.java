@@ -9,5 +9,20 @@ import java.util.List;
  */
 @FunctionalInterface
 public interface WatermarkProcessor {
+
     byte[] apply(List<WatermarkAttributes> watermarks) throws IOException;
+
+    /**
+     * Applies the watermarks and writes the result to the sink.
+     * By default the result is built in memory by {@link #apply(List)} and then written out,
+     * see {@link StreamingWatermarkProcessor} for processors writing to the sink directly.
+     *
+     * @since 1.5.0
+     */
+    default void apply(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException {
+        var result = apply(watermarks);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.markit.api;
 
 import com.markit.api.formats.image.WatermarkImageService;
+import com.markit.api.formats.pdf.PdfMemoryPolicy;
 import com.markit.api.formats.pdf.WatermarkPDFService;
 import com.markit.api.formats.video.WatermarkVideoService;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -41,14 +42,42 @@ public interface WatermarkService {
          */
         WatermarkPDFService watermarkPDF(File file);
 
+        /**
+         * Sets the PDF file to be watermarked using a byte array, bounding the heap used for the job.
+         *
+         * @param memoryPolicy The limits of main memory and scratch storage for the document.
+         * @since 1.5.0
+         */
+        WatermarkPDFService watermarkPDF(byte[] fileBytes, PdfMemoryPolicy memoryPolicy);
+
+        /**
+         * Sets the PDF file to be watermarked using a File object, bounding the heap used for the job.
+         *
+         * @param memoryPolicy The limits of main memory and scratch storage for the document.
+         * @since 1.5.0
+         */
+        WatermarkPDFService watermarkPDF(File file, PdfMemoryPolicy memoryPolicy);
+
         /**
          * Sets the PDF file to be watermarked using a PDDocument pdfbox object.
          *
+         * The document is closed once it is watermarked and saved.
+         *
          * @param document The PDF document to be watermarked.
          * @see PDDocument
          */
         WatermarkPDFService watermarkPDF(PDDocument document);
 
+        /**
+         * Sets the PDF file to be watermarked using a PDDocument pdfbox object.
+         *
+         * @param document The PDF document to be watermarked.
+         * @param closeDocument Whether the document is closed once it is watermarked and saved,
+         *                      false leaves it open for the caller that owns it.
+         * @since 1.5.0
+         */
+        WatermarkPDFService watermarkPDF(PDDocument document, boolean closeDocument);
+
         /**
          * @param file The image file to be watermarked.
          */
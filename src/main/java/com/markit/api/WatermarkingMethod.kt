@@ -6,5 +6,13 @@ package com.markit.api
  */
 enum class WatermarkingMethod {
     DRAW,
-    OVERLAY
+    OVERLAY,
+
+    /**
+     * Watermarks the images embedded into the pages (e.g. scanned pages) at their native resolution,
+     * text and vector content is left untouched
+     *
+     * @since 1.5.0
+     */
+    EMBEDDED_IMAGES
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.markit.api.builders;
 
+import com.markit.api.ByteArraySink;
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
 import com.markit.api.WatermarkProcessor;
 import com.markit.exceptions.WatermarkingException;
 import com.markit.utils.ValidationUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -25,6 +32,8 @@ public class BaseWatermarkBuilder<T> {
 
     private WatermarkAttributes watermark;
 
+    private boolean skipIfWatermarked;
+
     protected BaseWatermarkBuilder(WatermarkProcessor watermarkProcessor) {
         this.watermark = new WatermarkAttributes();
         this.watermarkProcessor = Objects.requireNonNull(watermarkProcessor, "WatermarkProcessor must not be null");
@@ -53,16 +62,121 @@ public class BaseWatermarkBuilder<T> {
     public byte[] apply() {
         try {
             approvePreviousWatermarkAttributes();
+            if (skipIfWatermarked) {
+                var sink = new ByteArraySink();
+                if (passThroughIfWatermarked(this.watermarks, sink)) {
+                    return sink.toByteArray();
+                }
+            }
             return this.watermarkProcessor.apply(this.watermarks);
         } catch (IOException e) {
             throw new WatermarkingException("Error watermarking the file", e);
         }
     }
 
+    /**
+     * Applies all configured watermarks to the file and writes the result to the sink.
+     *
+     * @param sink The destination of the watermarked file
+     * @throws WatermarkingException if an error occurs during watermarking
+     * @since 1.5.0
+     */
+    public void apply(OutputSink sink) {
+        Objects.requireNonNull(sink, "OutputSink must not be null");
+        try {
+            approvePreviousWatermarkAttributes();
+            if (skipIfWatermarked && passThroughIfWatermarked(this.watermarks, sink)) {
+                return;
+            }
+            this.watermarkProcessor.apply(this.watermarks, sink);
+        } catch (IOException e) {
+            throw new WatermarkingException("Error watermarking the file", e);
+        }
+    }
+
+    /**
+     * Applies all configured watermarks to the file and writes the result to the stream, which stays open.
+     *
+     * @since 1.5.0
+     */
+    public void apply(OutputStream output) {
+        apply(OutputSink.of(output));
+    }
+
+    /**
+     * Applies all configured watermarks to the file and writes the result to the given path.
+     *
+     * @since 1.5.0
+     */
+    public void apply(Path path) {
+        apply(OutputSink.of(path));
+    }
+
+    /**
+     * Applies all configured watermarks to the file and writes the result to the channel, which stays open.
+     *
+     * @since 1.5.0
+     */
+    public void apply(WritableByteChannel channel) {
+        apply(OutputSink.of(channel));
+    }
+
+    /**
+     * Writes the file to the sink unchanged when it already carries the same watermarks,
+     * as recorded in its metadata by an earlier watermarking. Formats that don't record them never skip.
+     *
+     * @return whether the file was written
+     * @since 1.5.0
+     */
+    protected boolean passThroughIfWatermarked(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException {
+        return false;
+    }
+
+    /**
+     * Writes the source file to the sink unchanged
+     *
+     * @since 1.5.0
+     */
+    protected static void passThrough(byte[] fileBytes, OutputSink sink) throws IOException {
+        try (var output = sink.open()) {
+            output.write(fileBytes);
+        }
+    }
+
+    /**
+     * Writes the source file to the sink unchanged, the file itself is left where it is
+     *
+     * @since 1.5.0
+     */
+    protected static void passThrough(File file, OutputSink sink) throws IOException {
+        try (var output = sink.open()) {
+            Files.copy(file.toPath(), output);
+        }
+    }
+
+    protected boolean isSkipIfWatermarked() {
+        return skipIfWatermarked;
+    }
+
+    protected void setSkipIfWatermarked(boolean skipIfWatermarked) {
+        this.skipIfWatermarked = skipIfWatermarked;
+    }
+
     protected WatermarkAttributes getWatermark() {
         return watermark;
     }
 
+    /**
+     * Adds the current watermark to the list, as the apply methods do, and returns all of them
+     *
+     * @throws IllegalArgumentException if the current watermark attributes are invalid
+     * @since 1.5.0
+     */
+    protected List<WatermarkAttributes> approveWatermarks() {
+        approvePreviousWatermarkAttributes();
+        return watermarks;
+    }
+
     private void approvePreviousWatermarkAttributes(){
         Objects.requireNonNull(watermark, "Current watermark must not be null");
         boolean isValid = ValidationUtils.validateWatermarkAttributes(watermark);
@@ -70,5 +184,9 @@ public class BaseWatermarkBuilder<T> {
             throw new IllegalArgumentException("Invalid watermark attributes");
         }
         watermarks.add(watermark);
+        if (skipIfWatermarked) {
+            // the next run recognizes the file by the fingerprint this one records
+            watermarks.forEach(attr -> attr.setRecordFingerprint(true));
+        }
     }
 }
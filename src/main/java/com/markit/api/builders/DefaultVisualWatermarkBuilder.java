@@ -97,6 +97,11 @@ public class DefaultVisualWatermarkBuilder<WatermarkService, WatermarkBuilder> e
         return builder();
     }
 
+    public WatermarkBuilder skipIfAlreadyWatermarked() {
+        setSkipIfWatermarked(true);
+        return builder();
+    }
+
     public WatermarkBuilder end() {
         return builder();
     }
@@ -1,7 +1,12 @@
 package com.markit.api.builders;
 
+import com.markit.api.OutputSink;
 import com.markit.api.positioning.WatermarkPosition;
 
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
 /**
  * Watermark Builder
  *
@@ -48,6 +53,15 @@ public interface VisualWatermarkBuilder<WatermarkServiceType, WatermarkBuilderTy
      */
     WatermarkBuilderType enableIf(boolean condition);
 
+    /**
+     * Leaves the file as it is when it already carries the same watermarks, as recorded in its metadata
+     * when it was watermarked before. The check only reads the metadata, so a file delivered again
+     * is returned unchanged without being rendered or encoded. Applies to the whole file.
+     *
+     * @since 1.5.0
+     */
+    WatermarkBuilderType skipIfAlreadyWatermarked();
+
     /**
      * Adds another watermark configuration to the file
      *
@@ -61,4 +75,32 @@ public interface VisualWatermarkBuilder<WatermarkServiceType, WatermarkBuilderTy
      * @return A byte array representing the watermarked file
      */
     byte[] apply();
+
+    /**
+     * Applies the watermark to the file and writes the result to the sink
+     *
+     * @since 1.5.0
+     */
+    void apply(OutputSink sink);
+
+    /**
+     * Applies the watermark to the file and writes the result to the stream. The stream is not closed.
+     *
+     * @since 1.5.0
+     */
+    void apply(OutputStream output);
+
+    /**
+     * Applies the watermark to the file and writes the result to the file at the given path
+     *
+     * @since 1.5.0
+     */
+    void apply(Path path);
+
+    /**
+     * Applies the watermark to the file and writes the result to the channel. The channel is not closed.
+     *
+     * @since 1.5.0
+     */
+    void apply(WritableByteChannel channel);
 }
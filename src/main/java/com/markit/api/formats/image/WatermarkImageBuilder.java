@@ -1,12 +1,19 @@
 package com.markit.api.formats.image;
 
-import com.markit.api.WatermarkProcessor;
+import com.markit.api.OutputSink;
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.StreamingWatermarkProcessor;
 import com.markit.api.builders.DefaultVisualWatermarkBuilder;
 import com.markit.exceptions.WatermarkingException;
+import com.markit.image.ImageConverter;
 import com.markit.image.ImageWatermarker;
 import com.markit.servicelocator.ServiceFactory;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * @author Oleg Cheban
@@ -16,28 +23,71 @@ public final class WatermarkImageBuilder
         extends DefaultVisualWatermarkBuilder<WatermarkImageService, WatermarkImageService.WatermarkImageBuilder>
         implements WatermarkImageService, WatermarkImageService.WatermarkImageBuilder {
 
+    private final Supplier<BufferedImage> source;
+
+    private final byte[] fileBytes;
+
+    private final File file;
+
     public WatermarkImageBuilder(byte[] fileBytes) {
         super(createWatermarkProcessor(fileBytes));
+        this.source = () -> new ImageConverter().convertToBufferedImage(fileBytes);
+        this.fileBytes = fileBytes;
+        this.file = null;
     }
 
     public WatermarkImageBuilder(File file) {
         super(createWatermarkProcessor(file));
+        this.source = () -> new ImageConverter().convertToBufferedImage(file);
+        this.fileBytes = null;
+        this.file = file;
+    }
+
+    @Override
+    public BufferedImage applyToImage() {
+        var watermarks = approveWatermarks();
+        try {
+            if (isSkipIfWatermarked() && isWatermarked(watermarks)) {
+                return source.get();
+            }
+            return getImageWatermarker().watermark(source.get(), watermarks);
+        } catch (Exception e) {
+            throw new WatermarkingException("Error watermarking the image", e);
+        }
+    }
+
+    @Override
+    protected boolean passThroughIfWatermarked(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException {
+        if (!isWatermarked(watermarks)) {
+            return false;
+        }
+        if (file != null) {
+            passThrough(file, sink);
+        } else {
+            passThrough(fileBytes, sink);
+        }
+        return true;
+    }
+
+    private boolean isWatermarked(List<WatermarkAttributes> watermarks) {
+        var watermarker = getImageWatermarker();
+        return file != null ? watermarker.isWatermarked(file, watermarks) : watermarker.isWatermarked(fileBytes, watermarks);
     }
 
-    private static WatermarkProcessor createWatermarkProcessor(File file) {
-        return watermarks -> {
+    private static StreamingWatermarkProcessor createWatermarkProcessor(File file) {
+        return (watermarks, sink) -> {
             try {
-                return getImageWatermarker().watermark(file, watermarks);
+                getImageWatermarker().watermark(file, watermarks, sink);
             } catch (Exception e) {
                 throw new WatermarkingException("Error watermarking the image", e);
             }
         };
     }
 
-    private static WatermarkProcessor createWatermarkProcessor(byte[] fileBytes) {
-        return watermarks -> {
+    private static StreamingWatermarkProcessor createWatermarkProcessor(byte[] fileBytes) {
+        return (watermarks, sink) -> {
             try {
-                return getImageWatermarker().watermark(fileBytes, watermarks);
+                getImageWatermarker().watermark(fileBytes, watermarks, sink);
             } catch (Exception e) {
                 throw new WatermarkingException("Error watermarking the image", e);
             }
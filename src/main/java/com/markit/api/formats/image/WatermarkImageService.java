@@ -45,5 +45,14 @@ public interface WatermarkImageService {
     /**
      * The images watermarking builder
      */
-    interface WatermarkImageBuilder extends VisualWatermarkBuilder<WatermarkImageService, WatermarkImageBuilder> {}
+    interface WatermarkImageBuilder extends VisualWatermarkBuilder<WatermarkImageService, WatermarkImageBuilder> {
+
+        /**
+         * Applies the watermarks to the decoded image and returns it without encoding it again
+         *
+         * @return the watermarked image
+         * @since 1.5.0
+         */
+        BufferedImage applyToImage();
+    }
 }
@@ -0,0 +1,26 @@
+package com.markit.api.formats.pdf
+
+/**
+ * Renders a DRAW page at the resolution of the image that dominates it (e.g. a scan), so the page is
+ * neither upsampled nor downsampled. Pages without such an image are rendered at the configured DPI.
+ *
+ * @param minDpi the lowest resolution a page is rendered at
+ * @param maxDpi the highest resolution a page is rendered at
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+data class AdaptiveDpi @JvmOverloads constructor(
+    val minDpi: Float = 72f,
+    val maxDpi: Float = 600f
+) {
+    init {
+        require(minDpi > 0 && minDpi <= maxDpi) { "The DPI range must be positive and not empty" }
+    }
+
+    /**
+     * The DPI for a page, given the resolution of its dominant image if it has one
+     */
+    fun resolve(imageDpi: Float?, configuredDpi: Float): Float =
+        imageDpi?.coerceIn(minDpi, maxDpi) ?: configuredDpi
+}
@@ -0,0 +1,24 @@
+package com.markit.api.formats.pdf
+
+import com.markit.pdf.draw.PageRasterCache
+
+/**
+ * Options that apply to the PDF document as a whole rather than to a single watermark
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+data class PdfDocumentAttributes(
+    var incrementalSave: Boolean = false,
+    var memoryPolicy: PdfMemoryPolicy? = null,
+    /** The number of pages watermarked together on a worker thread, 0 watermarks the document as a whole */
+    var chunkSize: Int = 0,
+    /** The maximum number of chunks watermarked at the same time */
+    var chunkParallelism: Int = Runtime.getRuntime().availableProcessors(),
+    /** The number of bytes the DRAW pages may take together, divided evenly between them, 0 for no budget */
+    var drawByteBudget: Long = 0,
+    /** The cache of DRAW rasters shared with other documents, null to render every page */
+    var rasterCache: PageRasterCache? = null,
+    /** Whether the PDFs and images attached to the document are watermarked too */
+    var watermarkAttachments: Boolean = false
+)
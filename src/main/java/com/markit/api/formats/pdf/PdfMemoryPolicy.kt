@@ -0,0 +1,33 @@
+package com.markit.api.formats.pdf
+
+import org.apache.pdfbox.io.MemoryUsageSetting
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Limits the heap used to watermark a single PDF. Buffers above the main memory limit are spilled
+ * to scratch files in the temp directory.
+ *
+ * @param maxMainMemoryBytes the maximum number of bytes kept in main memory, -1 for no limit
+ * @param tempDirectory the directory for scratch files, the system temp directory if null
+ * @param maxStorageBytes the maximum number of bytes kept in main memory and scratch files together, -1 for no limit
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+data class PdfMemoryPolicy @JvmOverloads constructor(
+    val maxMainMemoryBytes: Long,
+    val tempDirectory: File? = null,
+    val maxStorageBytes: Long = -1
+) {
+    fun toMemoryUsageSetting(): MemoryUsageSetting =
+        MemoryUsageSetting.setupMixed(maxMainMemoryBytes, maxStorageBytes).setTempDir(tempDirectory)
+
+    /**
+     * Creates an empty scratch file in the temp directory. The caller is responsible for deleting it.
+     */
+    fun createTempFile(suffix: String): Path =
+        if (tempDirectory != null) Files.createTempFile(tempDirectory.toPath(), "watermarkit", suffix)
+        else Files.createTempFile("watermarkit", suffix)
+}
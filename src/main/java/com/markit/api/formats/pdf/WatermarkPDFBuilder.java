@@ -1,17 +1,27 @@
 package com.markit.api.formats.pdf;
 
+import com.markit.api.ByteArraySink;
+import com.markit.api.OutputSink;
+import com.markit.api.StreamingWatermarkProcessor;
+import com.markit.api.WatermarkAttributes;
 import com.markit.api.builders.DefaultVisualWatermarkBuilder;
 import com.markit.api.WatermarkingMethod;
 import com.markit.exceptions.ClosePDFDocumentException;
+import com.markit.exceptions.WatermarkingException;
 import com.markit.pdf.WatermarkPdfServiceFactory;
+import com.markit.pdf.draw.PageRasterCache;
 import com.markit.servicelocator.ServiceFactory;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * @author Oleg Cheban
@@ -23,10 +33,66 @@ public final class WatermarkPDFBuilder
 
     private PDDocument document;
 
+    private final boolean ownsDocument;
+
+    private final Executor executor;
+
+    private final PdfDocumentAttributes documentAttributes;
+
+    private byte[] sourceBytes;
+
+    private File sourceFile;
+
     public WatermarkPDFBuilder(PDDocument pdfDoc, Executor executor) {
-        super(watermarks -> getPdfServiceFactory().create(executor).watermark(pdfDoc, watermarks));
+        this(pdfDoc, executor, true);
+    }
+
+    /**
+     * @param closeDocument whether the document is closed once it is watermarked and saved,
+     *                      false leaves it open for the caller that owns it
+     * @since 1.5.0
+     */
+    public WatermarkPDFBuilder(PDDocument pdfDoc, Executor executor, boolean closeDocument) {
+        this(pdfDoc, executor, new PdfDocumentAttributes(), closeDocument);
+    }
+
+    /**
+     * @param memoryPolicy the limits the document was loaded with, also applied when rendering and saving it
+     */
+    public WatermarkPDFBuilder(PDDocument pdfDoc, Executor executor, PdfMemoryPolicy memoryPolicy) {
+        this(pdfDoc, executor, new PdfDocumentAttributes(), true);
+        documentAttributes.setMemoryPolicy(memoryPolicy);
+    }
+
+    private WatermarkPDFBuilder(PDDocument pdfDoc, Executor executor, PdfDocumentAttributes documentAttributes,
+                                boolean closeDocument) {
+        super((StreamingWatermarkProcessor) (watermarks, sink) -> getPdfServiceFactory().create(executor).watermark(pdfDoc, watermarks, documentAttributes, sink));
         Objects.requireNonNull(pdfDoc, "PDDocument cannot be null");
         this.document = pdfDoc;
+        this.ownsDocument = closeDocument;
+        this.executor = executor;
+        this.documentAttributes = documentAttributes;
+    }
+
+    /**
+     * The file the document was loaded from, written as it is when the document is skipped
+     * as already watermarked instead of saving the document again
+     *
+     * @since 1.5.0
+     */
+    public WatermarkPDFService loadedFrom(byte[] fileBytes) {
+        this.sourceBytes = Objects.requireNonNull(fileBytes);
+        return this;
+    }
+
+    /**
+     * Same as {@link #loadedFrom(byte[])} for a document loaded from a file
+     *
+     * @since 1.5.0
+     */
+    public WatermarkPDFService loadedFrom(File file) {
+        this.sourceFile = Objects.requireNonNull(file);
+        return this;
     }
 
     @Override
@@ -41,6 +107,48 @@ public final class WatermarkPDFBuilder
         return this;
     }
 
+    @Override
+    public WatermarkPDFBuilder adaptiveDpi() {
+        getWatermark().setAdaptiveDpi(new AdaptiveDpi());
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder adaptiveDpi(int minDpi, int maxDpi) {
+        getWatermark().setAdaptiveDpi(new AdaptiveDpi(minDpi, maxDpi));
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder pageByteBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("The byte budget must be positive");
+        }
+        getWatermark().setPageByteBudget(bytes);
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder documentByteBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("The byte budget must be positive");
+        }
+        documentAttributes.setDrawByteBudget(bytes);
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder rasterCache(PageRasterCache cache) {
+        documentAttributes.setRasterCache(Objects.requireNonNull(cache));
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder watermarkAttachments() {
+        documentAttributes.setWatermarkAttachments(true);
+        return this;
+    }
+
     @Override
     public WatermarkPDFBuilder documentFilter(Predicate<PDDocument> predicate) {
         getWatermark().setDocumentPredicate(predicate);
@@ -53,6 +161,39 @@ public final class WatermarkPDFBuilder
         return this;
     }
 
+    @Override
+    public WatermarkPDFBuilder tilingPattern() {
+        getWatermark().setTilingPattern(true);
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder outlineText() {
+        getWatermark().setOutlineText(true);
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder incrementalSave() {
+        documentAttributes.setIncrementalSave(true);
+        return this;
+    }
+
+    @Override
+    public WatermarkPDFBuilder chunked(int pagesPerChunk) {
+        return chunked(pagesPerChunk, documentAttributes.getChunkParallelism());
+    }
+
+    @Override
+    public WatermarkPDFBuilder chunked(int pagesPerChunk, int parallelism) {
+        if (pagesPerChunk < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("The chunk size and the parallelism must be positive");
+        }
+        documentAttributes.setChunkSize(pagesPerChunk);
+        documentAttributes.setChunkParallelism(parallelism);
+        return this;
+    }
+
     @NotNull
     @Override
     public byte[] apply() {
@@ -63,7 +204,93 @@ public final class WatermarkPDFBuilder
         }
     }
 
+    @Override
+    public void apply(OutputSink sink) {
+        try {
+            super.apply(sink);
+        } finally {
+            closeDocument();
+        }
+    }
+
+    /**
+     * A document given as such, rather than loaded from a file, is saved as it is
+     */
+    @Override
+    protected boolean passThroughIfWatermarked(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException {
+        if (!getPdfServiceFactory().create(executor).isWatermarked(document, watermarks)) {
+            return false;
+        }
+        if (sourceBytes != null) {
+            passThrough(sourceBytes, sink);
+        } else if (sourceFile != null) {
+            passThrough(sourceFile, sink);
+        } else {
+            try (var output = sink.open()) {
+                document.save(output);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void applyForEach(Stream<String> recipients, Function<String, OutputSink> sinks) {
+        Objects.requireNonNull(recipients, "recipients must not be null");
+        Objects.requireNonNull(sinks, "sinks must not be null");
+        try {
+            getPdfServiceFactory().create(executor)
+                    .personalize(document, approveWatermarks(), documentAttributes, recipients, sinks);
+        } catch (IOException e) {
+            throw new WatermarkingException("Error watermarking the file", e);
+        } finally {
+            closeDocument();
+        }
+    }
+
+    @Override
+    public PDDocument applyToDocument() {
+        try {
+            var service = getPdfServiceFactory().create(executor);
+            var watermarks = approveWatermarks();
+            if (!isSkipIfWatermarked() || !service.isWatermarked(document, watermarks)) {
+                service.watermarkDocument(document, watermarks, documentAttributes);
+            }
+            return document;
+        } catch (IOException e) {
+            closeDocument();
+            throw new WatermarkingException("Error watermarking the file", e);
+        } catch (RuntimeException e) {
+            closeDocument();
+            throw e;
+        }
+    }
+
+    @Override
+    public byte[] replaceWatermark() {
+        return replaceWatermark(approveWatermarks());
+    }
+
+    @Override
+    public byte[] removeWatermark() {
+        return replaceWatermark(List.of());
+    }
+
+    private byte[] replaceWatermark(List<WatermarkAttributes> watermarks) {
+        try {
+            var sink = new ByteArraySink();
+            getPdfServiceFactory().create(executor).replaceWatermark(document, watermarks, documentAttributes, sink);
+            return sink.toByteArray();
+        } catch (IOException e) {
+            throw new WatermarkingException("Error watermarking the file", e);
+        } finally {
+            closeDocument();
+        }
+    }
+
     private void closeDocument() {
+        if (!ownsDocument) {
+            return;
+        }
         try {
             document.close();
         } catch (IOException e) {
@@ -1,13 +1,17 @@
 package com.markit.api.formats.pdf;
 
+import com.markit.api.OutputSink;
 import com.markit.api.builders.TextBasedWatermarkBuilder;
 import com.markit.api.WatermarkingMethod;
 import com.markit.api.builders.VisualWatermarkBuilder;
+import com.markit.pdf.draw.PageRasterCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * The Watermark Service for applying watermarks to PDFs
@@ -17,6 +21,14 @@ import java.util.function.Predicate;
  */
 public interface WatermarkPDFService {
 
+    /**
+     * The placeholder replaced with the recipient in the text of a watermark,
+     * see {@link WatermarkPDFBuilder#applyForEach(Stream, Function)}
+     *
+     * @since 1.5.0
+     */
+    String RECIPIENT = "{recipient}";
+
     /**
      * Text-based watermarking method
      *
@@ -45,6 +57,14 @@ public interface WatermarkPDFService {
      */
     WatermarkPDFBuilder withImage(File image);
 
+    /**
+     * Removes the OVERLAY watermarks this library added to the document and returns the result,
+     * saved as an incremental update when the document was loaded from a file or a byte array.
+     *
+     * @since 1.5.0
+     */
+    byte[] removeWatermark();
+
     /**
      * The PDFs watermarking builder
      */
@@ -63,6 +83,54 @@ public interface WatermarkPDFService {
          */
         WatermarkPDFBuilder dpi(int dpi);
 
+        /**
+         * Renders each page at the resolution of the image that covers most of it, such as a scan,
+         * between 72 and 600 DPI. Pages without such an image are rendered at {@link #dpi(int)}.
+         * Applies to the DRAW method only.
+         */
+        WatermarkPDFBuilder adaptiveDpi();
+
+        /**
+         * Same as {@link #adaptiveDpi()} with the given range
+         *
+         * @param minDpi the lowest resolution a page is rendered at
+         * @param maxDpi the highest resolution a page is rendered at
+         */
+        WatermarkPDFBuilder adaptiveDpi(int minDpi, int maxDpi);
+
+        /**
+         * Limits the size of the raster of every page drawn with this watermark. The JPEG quality is lowered
+         * to fit and, if that is not enough, the DPI too (down to 72). Applies to the DRAW method only.
+         * Black and white pages are compressed losslessly and are not fitted.
+         *
+         * @param bytes the number of bytes a page may take
+         */
+        WatermarkPDFBuilder pageByteBudget(long bytes);
+
+        /**
+         * Limits the size of the rasters of all DRAW pages of the document, dividing the budget evenly
+         * between them as in {@link #pageByteBudget(long)}. Applies to the whole document.
+         *
+         * @param bytes the number of bytes the DRAW pages may take together
+         */
+        WatermarkPDFBuilder documentByteBudget(long bytes);
+
+        /**
+         * Looks up the DRAW rasters of the pages in a cache shared with other documents, so a page that repeats
+         * across documents, watermarked the same way, is rendered once. Applies to the whole document.
+         *
+         * @param cache the cache, usually a single instance for the application
+         */
+        WatermarkPDFBuilder rasterCache(PageRasterCache cache);
+
+        /**
+         * Watermarks the PDFs and images attached to the document (its EmbeddedFiles, e.g. the documents
+         * of a PDF portfolio) with the same watermarks, attached PDFs including their own attachments.
+         * With an executor every attached file is watermarked as a task of its own. The watermarked files
+         * replace the attached ones; other attached files are kept as they are. Applies to the whole document.
+         */
+        WatermarkPDFBuilder watermarkAttachments();
+
         /**
          * Filters documents to determine which should receive the watermark.
          *
@@ -76,5 +144,78 @@ public interface WatermarkPDFService {
          * @param predicate A condition that takes a page number as input and returns true/false (the indexes starts from 0)
          */
         WatermarkPDFBuilder pageFilter(Predicate<Integer> predicate);
+
+        /**
+         * Paints a TILED watermark as a single tiling pattern fill instead of drawing every tile,
+         * which keeps the page content small regardless of the number of tiles.
+         * Applies to the OVERLAY method only. The text of a pattern-filled watermark can't be extracted.
+         */
+        WatermarkPDFBuilder tilingPattern();
+
+        /**
+         * Draws the text as filled outlines of its glyphs instead of text shown with an embedded font.
+         * The outlines are computed once per text, font and size and shared by all documents, so no font
+         * is loaded or subset, and any script the JVM can lay out is supported. Applies to the OVERLAY
+         * method only. The text of an outlined watermark can't be extracted.
+         */
+        WatermarkPDFBuilder outlineText();
+
+        /**
+         * Saves the watermarked document as an incremental update: the original file is kept byte for byte
+         * and only the new and modified objects are appended, so existing signatures stay intact.
+         * Applies to the whole document. Encrypted documents and documents that were not loaded
+         * from a file or a stream are saved in full.
+         */
+        WatermarkPDFBuilder incrementalSave();
+
+        /**
+         * Watermarks the pages in chunks of consecutive pages on the executor, each chunk in its own copy
+         * of the document, and moves the watermarked pages back into the document in page order.
+         * Outlines, named destinations, forms and metadata are kept as they are.
+         * Requires an executor and doesn't combine with {@link #incrementalSave()}; otherwise the document
+         * is watermarked as a whole. Every chunk in flight holds a full copy of the document,
+         * so a memory policy is recommended for very large documents.
+         *
+         * @param pagesPerChunk the number of pages in a chunk
+         */
+        WatermarkPDFBuilder chunked(int pagesPerChunk);
+
+        /**
+         * Same as {@link #chunked(int)}, limiting the number of chunks watermarked at the same time
+         *
+         * @param pagesPerChunk the number of pages in a chunk
+         * @param parallelism the maximum number of chunks in flight (default is the number of processors)
+         */
+        WatermarkPDFBuilder chunked(int pagesPerChunk, int parallelism);
+
+        /**
+         * Writes a copy of the document for every recipient, putting the recipient in place of {@link #RECIPIENT}
+         * in the text of the OVERLAY watermarks. The document is parsed, watermarked with the other watermarks
+         * and saved once; a copy is that file followed by an incremental update holding the recipient's stamps.
+         * With an executor the copies are written in parallel.
+         *
+         * @param recipients the recipients, read as the copies are written
+         * @param sinks the destination of the copy for a recipient
+         */
+        void applyForEach(Stream<String> recipients, Function<String, OutputSink> sinks);
+
+        /**
+         * Applies the watermarks to the document and returns it open, without saving it, so it can be merged,
+         * signed or encrypted without being parsed again. The caller owns the returned document and closes it.
+         * An encrypted document has its security removed, as when it is saved by {@link #apply()}.
+         * Chunks and incremental saving don't apply.
+         *
+         * @return the watermarked document
+         */
+        PDDocument applyToDocument();
+
+        /**
+         * Replaces the OVERLAY watermarks this library added to the document with the configured ones
+         * and returns the result. Only the stamps the pages refer to are swapped, the pages are not processed
+         * again, and the result is saved as an incremental update when the document was loaded from a file
+         * or a byte array. Pages left out by the filters lose their watermark. All the configured watermarks
+         * must use the OVERLAY method.
+         */
+        byte[] replaceWatermark();
     }
 }
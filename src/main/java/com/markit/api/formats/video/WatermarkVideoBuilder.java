@@ -1,39 +1,69 @@
 package com.markit.api.formats.video;
 
-import com.markit.api.WatermarkProcessor;
+import com.markit.api.OutputSink;
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.StreamingWatermarkProcessor;
 import com.markit.api.builders.DefaultVisualWatermarkBuilder;
 import com.markit.exceptions.WatermarkingException;
 import com.markit.servicelocator.ServiceFactory;
 import com.markit.video.VideoWatermarker;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 public final class WatermarkVideoBuilder
         extends DefaultVisualWatermarkBuilder<WatermarkVideoService, WatermarkVideoService.WatermarkVideoBuilder>
         implements WatermarkVideoService, WatermarkVideoService.WatermarkVideoBuilder {
 
+    private final byte[] fileBytes;
+
+    private final File file;
+
     public WatermarkVideoBuilder(byte[] fileBytes) {
         super(createWatermarkProcessor(fileBytes));
+        this.fileBytes = fileBytes;
+        this.file = null;
     }
 
     public WatermarkVideoBuilder(File file) {
         super(createWatermarkProcessor(file));
+        this.fileBytes = null;
+        this.file = file;
+    }
+
+    @Override
+    protected boolean passThroughIfWatermarked(List<WatermarkAttributes> watermarks, OutputSink sink) throws IOException {
+        try {
+            var watermarker = getVideoWatermarker();
+            if (file != null ? !watermarker.isWatermarked(file, watermarks) : !watermarker.isWatermarked(fileBytes, watermarks)) {
+                return false;
+            }
+        } catch (Exception e) {
+            throw new WatermarkingException("Error reading the metadata of the video", e);
+        }
+        if (file != null) {
+            passThrough(file, sink);
+        } else {
+            passThrough(fileBytes, sink);
+        }
+        return true;
     }
 
-    private static WatermarkProcessor createWatermarkProcessor(File file) {
-        return watermarks -> {
+    private static StreamingWatermarkProcessor createWatermarkProcessor(File file) {
+        return (watermarks, sink) -> {
             try {
-                return getVideoWatermarker().watermark(file, watermarks);
+                getVideoWatermarker().watermark(file, watermarks, sink);
             } catch (Exception e) {
                 throw new WatermarkingException("Error watermarking the video", e);
             }
         };
     }
 
-    private static WatermarkProcessor createWatermarkProcessor(byte[] fileBytes) {
-        return watermarks -> {
+    private static StreamingWatermarkProcessor createWatermarkProcessor(byte[] fileBytes) {
+        return (watermarks, sink) -> {
             try {
-                return getVideoWatermarker().watermark(fileBytes, watermarks);
+                getVideoWatermarker().watermark(fileBytes, watermarks, sink);
             } catch (Exception e) {
                 throw new WatermarkingException("Error watermarking the video", e);
             }
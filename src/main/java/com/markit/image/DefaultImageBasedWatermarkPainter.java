@@ -17,12 +17,17 @@ public class DefaultImageBasedWatermarkPainter implements ImageBasedWatermarkPai
 
     @Override
     public void draw(Graphics2D g2d, BufferedImage sourceImage, WatermarkAttributes attr) {
+        draw(g2d, sourceImage.getWidth(), sourceImage.getHeight(), attr);
+    }
+
+    @Override
+    public void draw(Graphics2D g2d, int imageWidth, int imageHeight, WatermarkAttributes attr) {
         BufferedImage watermarkImage = attr.getImage().get();
         var alphaChannel = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, attr.getOpacityFraction());
         configureGraphics(g2d, alphaChannel);
         int watermarkWidth = (int) (watermarkImage.getWidth() * (attr.getSize() / 200f));
         int watermarkHeight = (int) (watermarkImage.getHeight() * (attr.getSize() / 200f));
-        var coordinates = WatermarkPositioner.defineXY(attr, sourceImage.getWidth(), sourceImage.getHeight(), watermarkWidth, watermarkHeight);
+        var coordinates = WatermarkPositioner.defineXY(attr, imageWidth, imageHeight, watermarkWidth, watermarkHeight);
         coordinates.forEach(v -> drawWatermark(g2d, watermarkImage, v, watermarkWidth, watermarkHeight, attr.getRotationDegrees()));
     }
 
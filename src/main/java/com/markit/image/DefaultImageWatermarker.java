@@ -1,12 +1,21 @@
 package com.markit.image;
 
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkFingerprint;
 import com.markit.servicelocator.ServiceFactory;
 
 import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * @author Oleg Cheban
@@ -24,7 +33,7 @@ public class DefaultImageWatermarker implements ImageWatermarker {
         validateImageType(imageType);
 
         BufferedImage image = imageConverter.convertToBufferedImage(sourceImageBytes);
-        return watermark(image, imageType, attrs);
+        return toByteArray(image, imageType, attrs, () -> imageConverter.readComments(sourceImageBytes));
     }
 
     @Override
@@ -33,25 +42,98 @@ public class DefaultImageWatermarker implements ImageWatermarker {
         validateImageType(imageType);
 
         BufferedImage image = imageConverter.convertToBufferedImage(file);
-        return watermark(image, imageType, attrs);
+        return toByteArray(image, imageType, attrs, () -> imageConverter.readComments(file));
+    }
+
+    @Override
+    public void watermark(byte[] sourceImageBytes, List<WatermarkAttributes> attrs, OutputSink sink) throws IOException {
+        if (isByteArrayEmpty(sourceImageBytes)) {
+            sink.open().close();
+            return;
+        }
+        var imageType = ImageTypeDetector.detect(sourceImageBytes);
+        validateImageType(imageType);
+
+        BufferedImage image = imageConverter.convertToBufferedImage(sourceImageBytes);
+        try (var output = sink.open()) {
+            write(watermark(image, attrs), imageType, output, attrs, () -> imageConverter.readComments(sourceImageBytes));
+        }
+    }
+
+    @Override
+    public void watermark(File file, List<WatermarkAttributes> attrs, OutputSink sink) throws IOException {
+        var imageType = ImageTypeDetector.detect(file);
+        validateImageType(imageType);
+
+        BufferedImage image = imageConverter.convertToBufferedImage(file);
+        try (var output = sink.open()) {
+            write(watermark(image, attrs), imageType, output, attrs, () -> imageConverter.readComments(file));
+        }
     }
 
     public byte[] watermark(BufferedImage sourceImage, String imageType, List<WatermarkAttributes> attrs) {
+        return toByteArray(sourceImage, imageType, attrs, List::of);
+    }
+
+    private byte[] toByteArray(BufferedImage sourceImage, String imageType, List<WatermarkAttributes> attrs,
+                               Supplier<List<String>> sourceComments) {
+        var output = new ByteArrayOutputStream();
+        write(watermark(sourceImage, attrs), imageType, output, attrs, sourceComments);
+        return output.toByteArray();
+    }
+
+    /**
+     * The fingerprint is written only when it is recorded. It joins the comments of the source image,
+     * replacing a fingerprint of earlier watermarks.
+     */
+    private void write(BufferedImage image, String imageType, OutputStream output, List<WatermarkAttributes> attrs,
+                       Supplier<List<String>> sourceComments) {
+        if (!WatermarkFingerprint.isRecorded(attrs)) {
+            imageConverter.write(image, imageType, output);
+            return;
+        }
+        var comments = sourceComments.get().stream()
+                .filter(comment -> !WatermarkFingerprint.isFingerprint(comment))
+                .collect(Collectors.toCollection(ArrayList::new));
+        comments.add(WatermarkFingerprint.of(attrs));
+        imageConverter.write(image, imageType, output, comments);
+    }
+
+    /**
+     * The fingerprint is written as a comment of the image, only the metadata is read to find it
+     */
+    @Override
+    public boolean isWatermarked(byte[] sourceImageBytes, List<WatermarkAttributes> attrs) {
+        return !isByteArrayEmpty(sourceImageBytes)
+                && imageConverter.readComments(sourceImageBytes).contains(WatermarkFingerprint.of(attrs));
+    }
+
+    @Override
+    public boolean isWatermarked(File file, List<WatermarkAttributes> attrs) {
+        return imageConverter.readComments(file).contains(WatermarkFingerprint.of(attrs));
+    }
+
+    @Override
+    public BufferedImage watermark(BufferedImage sourceImage, List<WatermarkAttributes> attrs) {
         var g2d = sourceImage.createGraphics();
+        watermark(g2d, sourceImage.getWidth(), sourceImage.getHeight(), attrs);
+        g2d.dispose();
+        return sourceImage;
+    }
 
+    @Override
+    public void watermark(Graphics2D g2d, int imageWidth, int imageHeight, List<WatermarkAttributes> attrs) {
         attrs.forEach(attr -> {
             if (attr.getImage().isPresent()){
                 var imagePainter = (ImageBasedWatermarkPainter) ServiceFactory.getInstance()
                         .getService(ImageBasedWatermarkPainter.class);
-                imagePainter.draw(g2d, sourceImage, attr);
+                imagePainter.draw(g2d, imageWidth, imageHeight, attr);
             } else {
                 var textPainter = (TextBasedWatermarkPainter) ServiceFactory.getInstance()
                         .getService(TextBasedWatermarkPainter.class);
-                textPainter.draw(g2d, sourceImage, attr);
+                textPainter.draw(g2d, imageWidth, imageHeight, attr);
             }
         });
-        g2d.dispose();
-        return imageConverter.convertToByteArray(sourceImage, imageType);
     }
 
     public boolean isByteArrayEmpty(byte[] byteArray) {
@@ -22,8 +22,13 @@ public class DefaultTextBasedWatermarkPainter implements TextBasedWatermarkPaint
 
     @Override
     public void draw(Graphics2D g2d, BufferedImage sourceImage, WatermarkAttributes attr) {
+        draw(g2d, sourceImage.getWidth(), sourceImage.getHeight(), attr);
+    }
+
+    @Override
+    public void draw(Graphics2D g2d, int imageWidth, int imageHeight, WatermarkAttributes attr) {
         var alphaChannel = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, attr.getOpacityFraction());
-        var fontSize = calculateFontSize((int) (attr.getImageTextSize()), sourceImage.getWidth(), sourceImage.getHeight());
+        var fontSize = calculateFontSize((int) (attr.getImageTextSize()), imageWidth, imageHeight);
         var fontStyle = attr.isBold() ? Font.BOLD : Font.PLAIN;
         var font = new Font(attr.getFont().getAwtFontName(), fontStyle, fontSize);
         configureGraphics(g2d, alphaChannel, attr.getColor(), font);
@@ -31,7 +36,7 @@ public class DefaultTextBasedWatermarkPainter implements TextBasedWatermarkPaint
         TextLayout watermarkLayout = new TextLayout(attr.getText(), font, frc);
         Rectangle2D rect = watermarkLayout.getBounds();
 
-        var coordinates = WatermarkPositioner.defineXY(attr, sourceImage.getWidth(), sourceImage.getHeight(), (int) rect.getWidth(), (int) rect.getHeight());
+        var coordinates = WatermarkPositioner.defineXY(attr, imageWidth, imageHeight, (int) rect.getWidth(), (int) rect.getHeight());
         coordinates.forEach(v -> drawWatermark(g2d, watermarkLayout, attr, rect, v, font, fontSize));
     }
 
@@ -3,12 +3,24 @@ package com.markit.image;
 import com.markit.exceptions.ConvertBufferedImageToBytesException;
 import com.markit.exceptions.ConvertBytesToBufferedImageException;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -46,12 +58,129 @@ public class ImageConverter {
 
     public byte[] convertToByteArray(BufferedImage image, String imageType) {
         var baos = new ByteArrayOutputStream();
+        write(image, imageType, baos);
+        return baos.toByteArray();
+    }
 
+    /**
+     * Encodes the image straight into the stream, which stays open
+     */
+    public void write(BufferedImage image, String imageType, OutputStream output) {
         try {
-            ImageIO.write(image, imageType, baos);
+            ImageIO.write(image, imageType, output);
         } catch (IOException e) {
             throw new ConvertBufferedImageToBytesException(ERR_MSG);
         }
+    }
+
+    /**
+     * Same as {@link #convertToByteArray(BufferedImage, String)}, with the comments in the metadata of the image
+     *
+     * @since 1.5.0
+     */
+    public byte[] convertToByteArray(BufferedImage image, String imageType, List<String> comments) {
+        var baos = new ByteArrayOutputStream();
+        write(image, imageType, baos, comments);
         return baos.toByteArray();
     }
+
+    /**
+     * Encodes the image straight into the stream, which stays open, with the comments in its metadata:
+     * tEXt chunks of a PNG, COM segments of a JPEG or comment extensions of a GIF.
+     * Formats without text metadata get no comments.
+     *
+     * @since 1.5.0
+     */
+    public void write(BufferedImage image, String imageType, OutputStream output, List<String> comments) {
+        var writers = ImageIO.getImageWritersByFormatName(imageType.toLowerCase());
+        if (!writers.hasNext()) {
+            throw new ConvertBufferedImageToBytesException(String.format("No image writer for the format '%s'", imageType));
+        }
+        var writer = writers.next();
+        try (var imageOutput = ImageIO.createImageOutputStream(output)) {
+            var metadata = withComments(writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null), comments);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, metadata), null);
+        } catch (IOException e) {
+            throw new ConvertBufferedImageToBytesException(ERR_MSG);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * The comments in the metadata of the image. Only the metadata is read, the pixels are not decoded.
+     *
+     * @since 1.5.0
+     */
+    public List<String> readComments(byte[] imageBytes) {
+        return readComments(() -> ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes)));
+    }
+
+    /**
+     * Same as {@link #readComments(byte[])} for an image file
+     *
+     * @since 1.5.0
+     */
+    public List<String> readComments(File file) {
+        return readComments(() -> ImageIO.createImageInputStream(file));
+    }
+
+    private List<String> readComments(ImageInputSupplier inputSupplier) {
+        try (var input = inputSupplier.get()) {
+            var readers = input == null ? Collections.<ImageReader>emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return List.of();
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                var metadata = reader.getImageMetadata(0);
+                if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+                    return List.of();
+                }
+                var root = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+                var entries = ((IIOMetadataNode) root).getElementsByTagName("TextEntry");
+                List<String> comments = new ArrayList<>(entries.getLength());
+                for (int i = 0; i < entries.getLength(); i++) {
+                    comments.add(((IIOMetadataNode) entries.item(i)).getAttribute("value"));
+                }
+                return comments;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ConvertBytesToBufferedImageException(ERR_MSG);
+        }
+    }
+
+    /**
+     * The comments are merged as text entries of the format independent metadata, which the writer of every
+     * format maps to its own comments. Without a place for them the default metadata is kept.
+     */
+    private static IIOMetadata withComments(IIOMetadata metadata, List<String> comments) {
+        if (comments.isEmpty() || metadata == null || metadata.isReadOnly() || !metadata.isStandardMetadataFormatSupported()) {
+            return metadata;
+        }
+        var text = new IIOMetadataNode("Text");
+        for (String comment : comments) {
+            var entry = new IIOMetadataNode("TextEntry");
+            entry.setAttribute("keyword", "comment");
+            entry.setAttribute("value", comment);
+            text.appendChild(entry);
+        }
+        var root = new IIOMetadataNode(IIOMetadataFormatImpl.standardMetadataFormatName);
+        root.appendChild(text);
+        try {
+            metadata.mergeTree(IIOMetadataFormatImpl.standardMetadataFormatName, root);
+        } catch (IIOInvalidTreeException e) {
+            // the format has no text entries
+        }
+        return metadata;
+    }
+
+    @FunctionalInterface
+    private interface ImageInputSupplier {
+        ImageInputStream get() throws IOException;
+    }
 }
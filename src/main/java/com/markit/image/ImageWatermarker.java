@@ -1,10 +1,15 @@
 package com.markit.image;
 
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
 import com.markit.servicelocator.Prioritizable;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -32,4 +37,96 @@ public interface ImageWatermarker extends Prioritizable {
      * @return A byte array representing the watermarked image.
      */
     byte[] watermark(File file, List<WatermarkAttributes> attrs) throws IOException;
+
+    /**
+     * Adds a text watermark to the given image and writes the result to the sink.
+     *
+     * @param sourceImageBytes The image in byte array format.
+     * @param attrs The attributes of watermark
+     * @param sink The destination of the watermarked image.
+     * @since 1.5.0
+     */
+    default void watermark(byte[] sourceImageBytes, List<WatermarkAttributes> attrs, OutputSink sink) throws IOException {
+        var result = watermark(sourceImageBytes, attrs);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
+
+    /**
+     * Adds a text watermark to the given image and writes the result to the sink.
+     *
+     * @param file The source file of image.
+     * @param attrs The attributes of watermark
+     * @param sink The destination of the watermarked image.
+     * @since 1.5.0
+     */
+    default void watermark(File file, List<WatermarkAttributes> attrs, OutputSink sink) throws IOException {
+        var result = watermark(file, attrs);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
+
+    /**
+     * Whether the image already carries the same watermarks, as recorded in its metadata when it was watermarked
+     *
+     * @param sourceImageBytes The image in byte array format.
+     * @param attrs The attributes of watermark
+     * @since 1.5.0
+     */
+    default boolean isWatermarked(byte[] sourceImageBytes, List<WatermarkAttributes> attrs) {
+        return false;
+    }
+
+    /**
+     * Whether the image already carries the same watermarks, as recorded in its metadata when it was watermarked
+     *
+     * @param file The source file of image.
+     * @param attrs The attributes of watermark
+     * @since 1.5.0
+     */
+    default boolean isWatermarked(File file, List<WatermarkAttributes> attrs) {
+        return false;
+    }
+
+    /**
+     * Draws the watermarks directly on the given image, skipping any encoding and decoding.
+     *
+     * @param sourceImage The image to be watermarked; it is modified in place.
+     * @param attrs The attributes of watermark
+     * @return The watermarked image (the same instance as {@code sourceImage}).
+     * @since 1.5.0
+     */
+    default BufferedImage watermark(BufferedImage sourceImage, List<WatermarkAttributes> attrs) {
+        // implementations that only take encoded images get the image as a PNG, which keeps every pixel
+        var imageConverter = new ImageConverter();
+        byte[] watermarked;
+        try {
+            watermarked = watermark(imageConverter.convertToByteArray(sourceImage, "png"), attrs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var g2d = sourceImage.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(imageConverter.convertToBufferedImage(watermarked), 0, 0, null);
+        g2d.dispose();
+        return sourceImage;
+    }
+
+    /**
+     * Draws the watermarks on an image of the given size through its graphics. The graphics may cover only
+     * a part of the image (e.g. a band of it), the watermarks are positioned relative to the whole image.
+     *
+     * @param g2d The graphics of the image, it is not disposed.
+     * @param imageWidth The width of the whole image.
+     * @param imageHeight The height of the whole image.
+     * @param attrs The attributes of watermark
+     * @since 1.5.0
+     */
+    default void watermark(Graphics2D g2d, int imageWidth, int imageHeight, List<WatermarkAttributes> attrs) {
+        // the watermarks are drawn on a transparent image of the whole size, which takes as much memory as the image itself
+        var overlay = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+        g2d.drawImage(watermark(overlay, attrs), 0, 0, null);
+    }
 }
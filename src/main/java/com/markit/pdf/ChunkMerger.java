@@ -0,0 +1,161 @@
+package com.markit.pdf;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves the pages watermarked in chunks back into one document.
+ * <p>
+ * The document and the chunks are copies loaded from the same snapshot, so an object that existed before
+ * watermarking has the same key in all of them. Watermarking only changes the content and the resources
+ * of a page: they are rebuilt in the document, referring to the existing objects by their keys and copying
+ * the objects created for the watermarks. Everything else (the outline, named destinations, forms, metadata)
+ * is the document's own and stays as it was.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class ChunkMerger {
+    private final PDDocument document;
+    private List<PDPage> pages;
+
+    ChunkMerger(PDDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Replaces the content and the resources of the document pages with the ones of the watermarked chunk pages
+     *
+     * @param chunk a copy of the document loaded from the same snapshot
+     * @param chunkPages the watermarked pages of the chunk
+     */
+    void merge(PDDocument chunk, List<SelectedPage> chunkPages) throws IOException {
+        var copier = new ObjectCopier(chunk);
+        for (SelectedPage chunkPage : chunkPages) {
+            var source = chunkPage.getPage();
+            var target = getPage(chunkPage.getIndex()).getCOSObject();
+            target.setItem(COSName.CONTENTS, copier.copy(source.getCOSObject().getItem(COSName.CONTENTS)));
+            var resources = source.getResources();
+            target.setItem(COSName.RESOURCES, resources == null ? null : copier.copyResources(resources.getCOSObject()));
+        }
+    }
+
+    private PDPage getPage(int pageIndex) {
+        if (pages == null) {
+            pages = new ArrayList<>(document.getNumberOfPages());
+            document.getPages().forEach(pages::add);
+        }
+        return pages.get(pageIndex);
+    }
+
+    /**
+     * Copies the objects of one chunk into the document
+     */
+    private final class ObjectCopier {
+        private final Map<COSBase, COSObjectKey> keys = new IdentityHashMap<>();
+        private final Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+
+        private ObjectCopier(PDDocument chunk) {
+            for (COSObject object : chunk.getDocument().getObjects()) {
+                if (object.getObject() != null) {
+                    keys.put(object.getObject(), new COSObjectKey(object));
+                }
+            }
+        }
+
+        /**
+         * The resources and their categories are always rebuilt: a watermark may have been added to
+         * a dictionary that existed before and is shared with pages that are not watermarked
+         */
+        private COSDictionary copyResources(COSDictionary resources) throws IOException {
+            var copy = new COSDictionary();
+            for (Map.Entry<COSName, COSBase> entry : resources.entrySet()) {
+                var category = resources.getDictionaryObject(entry.getKey());
+                if (category instanceof COSDictionary && !(category instanceof COSStream)) {
+                    var categoryCopy = new COSDictionary();
+                    for (Map.Entry<COSName, COSBase> item : ((COSDictionary) category).entrySet()) {
+                        categoryCopy.setItem(item.getKey(), copy(item.getValue()));
+                    }
+                    copy.setItem(entry.getKey(), categoryCopy);
+                } else {
+                    copy.setItem(entry.getKey(), copy(entry.getValue()));
+                }
+            }
+            return copy;
+        }
+
+        private COSBase copy(COSBase value) throws IOException {
+            if (value instanceof COSObject) {
+                var reference = (COSObject) value;
+                if (reference.getObjectNumber() > 0) {
+                    return document.getDocument().getObjectFromPool(new COSObjectKey(reference));
+                }
+                value = reference.getObject();
+            }
+            if (value == null) {
+                return null;
+            }
+            var key = keys.get(value);
+            if (key != null) {
+                return document.getDocument().getObjectFromPool(key);
+            }
+            var copied = copies.get(value);
+            if (copied != null) {
+                return copied;
+            }
+            if (value instanceof COSStream) {
+                return copyStream((COSStream) value);
+            }
+            if (value instanceof COSDictionary) {
+                var dictionary = new COSDictionary();
+                copies.put(value, dictionary);
+                for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) value).entrySet()) {
+                    dictionary.setItem(entry.getKey(), copy(entry.getValue()));
+                }
+                return dictionary;
+            }
+            if (value instanceof COSArray) {
+                var source = (COSArray) value;
+                var array = new COSArray();
+                copies.put(value, array);
+                for (int i = 0; i < source.size(); i++) {
+                    array.add(copy(source.get(i)));
+                }
+                return array;
+            }
+            // names, numbers, strings, booleans and null are immutable
+            return value;
+        }
+
+        /**
+         * The data is copied as is, without decoding it
+         */
+        private COSStream copyStream(COSStream source) throws IOException {
+            var stream = document.getDocument().createCOSStream();
+            copies.put(source, stream);
+            for (Map.Entry<COSName, COSBase> entry : source.entrySet()) {
+                if (!COSName.LENGTH.equals(entry.getKey())) {
+                    stream.setItem(entry.getKey(), copy(entry.getValue()));
+                }
+            }
+            try (var input = source.createRawInputStream(); var output = stream.createRawOutputStream()) {
+                input.transferTo(output);
+            }
+            return stream;
+        }
+    }
+}
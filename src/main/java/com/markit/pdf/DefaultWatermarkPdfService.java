@@ -1,23 +1,48 @@
 package com.markit.pdf;
 
+import com.markit.api.ByteArraySink;
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
 import com.markit.api.WatermarkingMethod;
+import com.markit.api.formats.pdf.PdfDocumentAttributes;
+import com.markit.api.formats.pdf.PdfMemoryPolicy;
+import com.markit.exceptions.AsyncWatermarkPdfException;
 import com.markit.exceptions.ExecutorNotFoundException;
+import com.markit.pdf.draw.DocumentViewPool;
 import com.markit.pdf.draw.DrawPdfWatermarker;
+import com.markit.pdf.draw.RasterDrawPdfWatermarker;
+import com.markit.pdf.draw.PageRaster;
+import com.markit.pdf.draw.PageRasterCache;
+import com.markit.pdf.embedded.EmbeddedImagePdfWatermarker;
+import com.markit.pdf.embedded.EmbeddedImagePool;
 import com.markit.pdf.overlay.OverlayPdfWatermarker;
+import com.markit.pdf.overlay.StampOverlayPdfWatermarker;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
 import com.markit.servicelocator.ServiceFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.PDFRenderer;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Oleg Cheban
@@ -25,6 +50,8 @@ import java.util.stream.Collectors;
  */
 public class DefaultWatermarkPdfService implements WatermarkPdfService {
     private static final Log logger = LogFactory.getLog(DefaultWatermarkPdfService.class);
+    private static final int MAX_PAGES_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int MAX_COPIES_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
     private final Optional<Executor> executorService;
 
     public DefaultWatermarkPdfService(Executor es) {
@@ -33,100 +60,544 @@ public class DefaultWatermarkPdfService implements WatermarkPdfService {
 
     @Override
     public byte[] watermark(PDDocument document, List<WatermarkAttributes> attrs) throws IOException {
-        applyWatermark(document, attrs, WatermarkingMethod.DRAW, this::draw);
-        applyWatermark(document, attrs, WatermarkingMethod.OVERLAY, this::overlay);
+        return watermark(document, attrs, new PdfDocumentAttributes());
+    }
+
+    @Override
+    public byte[] watermark(PDDocument document, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs) throws IOException {
+        var sink = new ByteArraySink();
+        watermark(document, attrs, documentAttrs, sink);
+        return sink.toByteArray();
+    }
+
+    @Override
+    public void watermark(PDDocument document, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                          OutputSink sink) throws IOException {
+        boolean incrementalSave = documentAttrs.getIncrementalSave() && canSaveIncrementally(document);
+        var appliedAttrs = appliedAttrs(document, attrs);
+        var selectedPages = select(document, appliedAttrs, documentAttrs);
+        // before the document is copied for the chunks
+        DocumentFingerprint.write(document, appliedAttrs);
+
+        // done up front so that the copies of the document used for parallel rendering are not encrypted
         removeSecurity(document);
-        return convertPDDocumentToByteArray(document);
+        var attachments = watermarkAttachments(document, appliedAttrs, documentAttrs);
+        var chunks = chunks(selectedPages, documentAttrs, incrementalSave);
+        if (chunks.size() > 1) {
+            // the chunks are copies of the document, so they must have the watermarked attachments
+            attachments.embed(document);
+            watermarkInChunks(document, chunks, documentAttrs, sink);
+            return;
+        }
+        applyWatermarks(document, selectedPages, documentAttrs);
+        attachments.embed(document);
+
+        if (incrementalSave) {
+            markWatermarkedPagesUpdated(document, selectedPages.stream().map(SelectedPage::getPage).collect(Collectors.toList()));
+            saveIncrementally(document, documentAttrs.getMemoryPolicy(), sink);
+        } else {
+            save(document, PDDocument::save, documentAttrs.getMemoryPolicy(), sink);
+        }
     }
 
-    private void applyWatermark(PDDocument document, List<WatermarkAttributes> attrs,
-                                WatermarkingMethod method, PdfWatermarkProcessor action) throws IOException {
-        var filteredAttrs = attrs.stream()
+    /**
+     * Only the pages whose stamps change are written, as an incremental update when the document allows it
+     */
+    @Override
+    public void replaceWatermark(PDDocument document, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                                 OutputSink sink) throws IOException {
+        var appliedAttrs = appliedAttrs(document, attrs);
+        if (appliedAttrs.stream().anyMatch(attr -> attr.getMethod() != WatermarkingMethod.OVERLAY)) {
+            throw new IllegalArgumentException("Only OVERLAY watermarks can replace a watermark");
+        }
+        boolean incrementalSave = canSaveIncrementally(document);
+        removeSecurity(document);
+        var changedPages = WatermarkLayer.replace(document, SelectedPage.select(document, appliedAttrs));
+        DocumentFingerprint.write(document, appliedAttrs);
+        if (incrementalSave) {
+            markWatermarkedPagesUpdated(document, changedPages);
+            saveIncrementally(document, documentAttrs.getMemoryPolicy(), sink);
+        } else {
+            save(document, PDDocument::save, documentAttrs.getMemoryPolicy(), sink);
+        }
+    }
+
+    /**
+     * Chunks and incremental saving only change how the document is saved, so they don't apply here
+     */
+    @Override
+    public void watermarkDocument(PDDocument document, List<WatermarkAttributes> attrs,
+                                  PdfDocumentAttributes documentAttrs) throws IOException {
+        var appliedAttrs = appliedAttrs(document, attrs);
+        var selectedPages = select(document, appliedAttrs, documentAttrs);
+        removeSecurity(document);
+        var attachments = watermarkAttachments(document, appliedAttrs, documentAttrs);
+        applyWatermarks(document, selectedPages, documentAttrs);
+        attachments.embed(document);
+        DocumentFingerprint.write(document, appliedAttrs);
+    }
+
+    /**
+     * Only the document information is read, so it is checked before any page is watermarked
+     */
+    @Override
+    public boolean isWatermarked(PDDocument document, List<WatermarkAttributes> attrs) {
+        return DocumentFingerprint.isPresent(document, appliedAttrs(document, attrs));
+    }
+
+    /**
+     * The document is watermarked with everything but the personalized watermarks and saved once as the base.
+     * Then the copies are written, each by a single task when there is an executor.
+     */
+    @Override
+    public void personalize(PDDocument document, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                            Stream<String> recipients, Function<String, OutputSink> sinks) throws IOException {
+        var appliedAttrs = appliedAttrs(document, attrs);
+        for (WatermarkAttributes attr : appliedAttrs) {
+            if (PersonalizedStamps.isPersonalized(attr) && attr.getMethod() != WatermarkingMethod.OVERLAY) {
+                throw new IllegalArgumentException("Only OVERLAY watermarks can be personalized");
+            }
+        }
+        var fixedAttrs = appliedAttrs.stream()
+                .filter(attr -> !PersonalizedStamps.isPersonalized(attr))
+                .collect(Collectors.toList());
+        var personalizedAttrs = appliedAttrs.stream()
+                .filter(PersonalizedStamps::isPersonalized)
+                .collect(Collectors.toList());
+
+        removeSecurity(document);
+        applyWatermarks(document, select(document, fixedAttrs, documentAttrs), documentAttrs);
+        var stamps = PersonalizedStamps.prepare(document, SelectedPage.select(document, personalizedAttrs));
+        // the copies append a cross-reference table, which is only allowed to follow another table
+        document.getDocument().setIsXRefStream(false);
+        var base = new ByteArraySink();
+        save(document, PDDocument::save, documentAttrs.getMemoryPolicy(), base);
+        stamps.load(base.toByteArray());
+
+        if (executorService.isEmpty()) {
+            for (Iterator<String> it = recipients.iterator(); it.hasNext(); ) {
+                var recipient = it.next();
+                stamps.write(recipient, sinks.apply(recipient));
+            }
+        } else {
+            writeInParallel(stamps, recipients, sinks);
+        }
+    }
+
+    /**
+     * The number of copies in flight is bounded, so the recipients are read as the copies are written
+     */
+    private void writeInParallel(PersonalizedStamps stamps, Stream<String> recipients,
+                                 Function<String, OutputSink> sinks) throws IOException {
+        Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+        try {
+            for (Iterator<String> it = recipients.iterator(); it.hasNext(); ) {
+                if (inFlight.size() == MAX_COPIES_IN_FLIGHT) {
+                    awaitCopy(inFlight.poll());
+                }
+                var recipient = it.next();
+                inFlight.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        stamps.write(recipient, sinks.apply(recipient));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executorService.get()));
+            }
+            while (!inFlight.isEmpty()) {
+                awaitCopy(inFlight.poll());
+            }
+        } finally {
+            inFlight.forEach(copy -> copy.exceptionally(e -> null).join());
+        }
+    }
+
+    private static void awaitCopy(CompletableFuture<Void> copy) {
+        try {
+            copy.join();
+        } catch (CompletionException e) {
+            logger.error("An error occurred during writing a personalized copy", e.getCause());
+            throw new AsyncWatermarkPdfException(e.getCause());
+        }
+    }
+
+    /**
+     * The attached files are watermarked on the executor while the pages are
+     */
+    private EmbeddedAttachments watermarkAttachments(PDDocument document, List<WatermarkAttributes> attrs,
+                                                     PdfDocumentAttributes documentAttrs) throws IOException {
+        return EmbeddedAttachments.watermark(document, documentAttrs.getWatermarkAttachments() ? attrs : List.of(),
+                executorService);
+    }
+
+    private static List<WatermarkAttributes> appliedAttrs(PDDocument document, List<WatermarkAttributes> attrs) {
+        return attrs.stream()
                 .filter(WatermarkAttributes::getVisible)
                 .filter(attr -> attr.getDocumentPredicate().test(document))
-                .filter(attr -> attr.getMethod().equals(method))
                 .collect(Collectors.toList());
-        if (!filteredAttrs.isEmpty()) {
-            action.apply(document, filteredAttrs);
+    }
+
+    private static List<SelectedPage> select(PDDocument document, List<WatermarkAttributes> attrs,
+                                             PdfDocumentAttributes documentAttrs) {
+        var selectedPages = SelectedPage.select(document, attrs);
+        if (documentAttrs.getDrawByteBudget() > 0) {
+            selectedPages = SelectedPage.withDrawByteBudget(selectedPages, documentAttrs.getDrawByteBudget());
         }
+        return selectedPages;
     }
 
-    private void overlay(PDDocument document, List<WatermarkAttributes> attrs) throws IOException {
-        var overlayService = (OverlayPdfWatermarker) ServiceFactory.getInstance().getService(OverlayPdfWatermarker.class);
-        int numberOfPages = document.getNumberOfPages();
-        for (int pageIndex = 0; pageIndex < numberOfPages; pageIndex++) {
-            List<WatermarkAttributes> filteredAttrs = filterAttrsByPageIndex(attrs, pageIndex);
-            if (!filteredAttrs.isEmpty()){
-                overlayService.watermark(document, pageIndex, filteredAttrs);
+    private void applyWatermarks(PDDocument document, List<SelectedPage> selectedPages,
+                                 PdfDocumentAttributes documentAttrs) throws IOException {
+        applyWatermark(document, selectedPages, WatermarkingMethod.EMBEDDED_IMAGES, this::watermarkEmbeddedImages);
+        applyWatermark(document, selectedPages, WatermarkingMethod.DRAW,
+                (doc, pages) -> draw(doc, pages, documentAttrs));
+        applyWatermark(document, selectedPages, WatermarkingMethod.OVERLAY, this::overlay);
+    }
+
+    private void applyWatermark(PDDocument document, List<SelectedPage> selectedPages,
+                                WatermarkingMethod method, PdfWatermarkProcessor action) throws IOException {
+        var pages = SelectedPage.withMethod(selectedPages, method);
+        if (!pages.isEmpty()) {
+            action.apply(document, pages);
+        }
+    }
+
+    private void overlay(PDDocument document, List<SelectedPage> pages) throws IOException {
+        var resources = new DocumentResourcePool(document);
+        try {
+            var overlayService = (OverlayPdfWatermarker) ServiceFactory.getInstance().getService(OverlayPdfWatermarker.class);
+            if (executorService.isPresent() && overlayService instanceof StampOverlayPdfWatermarker) {
+                for (SelectedPage page : pages) {
+                    ((StampOverlayPdfWatermarker) overlayService).prepare(document, page.getPage(), page.getAttrs(),
+                            resources, executorService.get());
+                }
             }
+            overlay(document, pages, resources);
+        } finally {
+            resources.awaitStamps();
+        }
+    }
+
+    private void overlay(PDDocument document, List<SelectedPage> pages, DocumentResourcePool resources) throws IOException {
+        var overlayService = (OverlayPdfWatermarker) ServiceFactory.getInstance().getService(OverlayPdfWatermarker.class);
+        for (SelectedPage page : pages) {
+            OverlayStamps.watermark(overlayService, document, page.getPage(), page.getIndex(), page.getAttrs(), resources);
         }
     }
 
-    private void draw(PDDocument document, List<WatermarkAttributes> attrs) {
-        int numberOfPages = document.getNumberOfPages();
+    private void watermarkEmbeddedImages(PDDocument document, List<SelectedPage> pages) throws IOException {
+        var embeddedImageService = (EmbeddedImagePdfWatermarker) ServiceFactory.getInstance()
+                .getService(EmbeddedImagePdfWatermarker.class);
+        var images = new EmbeddedImagePool();
+        for (SelectedPage page : pages) {
+            embeddedImageService.watermark(document, page.getPage(), page.getAttrs(), images);
+        }
+    }
+
+    private void draw(PDDocument document, List<SelectedPage> pages, PdfDocumentAttributes documentAttrs) throws IOException {
         if (executorService.isEmpty()) {
-            sync(document, numberOfPages, attrs);
+            sync(document, pages, documentAttrs.getRasterCache());
         } else {
-            async(document, numberOfPages, attrs);
+            async(document, pages, documentAttrs.getMemoryPolicy(), documentAttrs.getRasterCache());
         }
     }
 
-    private void async(PDDocument document, int numberOfPages, List<WatermarkAttributes> attrs){
+    /**
+     * Pages are rendered and watermarked on the executor, each worker using its own copy of the document.
+     * The results are embedded into the document on the calling thread, in page order. The number of pages
+     * in flight is bounded so that finished pages waiting for the writer don't pile up in memory.
+     */
+    private void async(PDDocument document, List<SelectedPage> pages, PdfMemoryPolicy memoryPolicy,
+                       PageRasterCache cache) throws IOException {
         if (executorService.isEmpty()){
             logger.error("An empty executor");
             throw new ExecutorNotFoundException();
         }
 
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-        for (int pageIndex = 0; pageIndex < numberOfPages; pageIndex++) {
-            final int pIndex = pageIndex;
-            futures.add(
-                CompletableFuture.runAsync(
-                        () -> {
-                            try {
-                                draw(document, pIndex, attrs);
-                            } catch (IOException e) {
-                                logPageException(e, pIndex);
-                            }
-                        },
-                        executorService.get()
-                )
-            );
-        }
-        var allOf = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
-        allOf.join();
-    }
-
-    private void sync(PDDocument document, int numberOfPages, List<WatermarkAttributes> attrs) {
-        for (int pageIndex = 0; pageIndex < numberOfPages; pageIndex++) {
+        var drawService = (DrawPdfWatermarker) ServiceFactory.getInstance().getService(DrawPdfWatermarker.class);
+        if (!(drawService instanceof RasterDrawPdfWatermarker)) {
+            // the watermarker works on the document itself, which can't be shared by several threads
+            watermarkPages(drawService, document, pages);
+            return;
+        }
+        var rasterService = (RasterDrawPdfWatermarker) drawService;
+        Deque<RenderedPage> inFlight = new ArrayDeque<>();
+        try (var views = DocumentViewPool.of(document, memoryPolicy)) {
             try {
-                draw(document, pageIndex, attrs);
-            } catch (IOException e) {
-                logPageException(e, pageIndex);
+                for (SelectedPage page : pages) {
+                    if (inFlight.size() == MAX_PAGES_IN_FLIGHT) {
+                        embed(rasterService, document, inFlight.poll());
+                    }
+                    inFlight.add(new RenderedPage(page,
+                            CompletableFuture.supplyAsync(() -> render(rasterService, views, page, cache), executorService.get())
+                    ));
+                }
+                while (!inFlight.isEmpty()) {
+                    embed(rasterService, document, inFlight.poll());
+                }
+            } finally {
+                // the copies of the document must not be closed while workers are still rendering them
+                inFlight.forEach(page -> page.raster.exceptionally(e -> null).join());
             }
         }
     }
 
-    private void draw(PDDocument document, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
+    private static PageRaster render(RasterDrawPdfWatermarker drawService, DocumentViewPool views, SelectedPage page,
+                                     PageRasterCache cache) {
+        try {
+            var view = views.borrow();
+            try {
+                return render(drawService, view.getRenderer(), view.getPage(page.getIndex()), page, cache);
+            } finally {
+                views.release(view);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void embed(RasterDrawPdfWatermarker drawService, PDDocument document, RenderedPage page) throws IOException {
+        PageRaster raster;
+        try {
+            raster = page.raster.join();
+        } catch (CompletionException e) {
+            logPageException(e.getCause(), page.page.getIndex());
+            throw new AsyncWatermarkPdfException(e.getCause());
+        }
+        drawService.embed(document, page.page.getPage(), raster);
+    }
+
+    private void sync(PDDocument document, List<SelectedPage> pages, PageRasterCache cache) throws IOException {
         var drawService = (DrawPdfWatermarker) ServiceFactory.getInstance().getService(DrawPdfWatermarker.class);
-        List<WatermarkAttributes> filteredAttrs = filterAttrsByPageIndex(attrs, pageIndex);
-        if (!filteredAttrs.isEmpty()) drawService.watermark(document, pageIndex, filteredAttrs);
+        if (!(drawService instanceof RasterDrawPdfWatermarker)) {
+            watermarkPages(drawService, document, pages);
+            return;
+        }
+        var rasterService = (RasterDrawPdfWatermarker) drawService;
+        var renderer = new PDFRenderer(document);
+        for (SelectedPage page : pages) {
+            try {
+                rasterService.embed(document, page.getPage(), render(rasterService, renderer, page.getPage(), page, cache));
+            } catch (IOException e) {
+                logPageException(e, page.getIndex());
+                throw e;
+            }
+        }
     }
 
-    private static List<WatermarkAttributes> filterAttrsByPageIndex(List<WatermarkAttributes> attrs, int pIndex) {
-        return attrs.stream()
-                .filter(attr -> attr.getPagePredicate().test(pIndex))
-                .collect(Collectors.toList());
+    private void watermarkPages(DrawPdfWatermarker drawService, PDDocument document, List<SelectedPage> pages) throws IOException {
+        for (SelectedPage page : pages) {
+            try {
+                drawService.watermark(document, page.getIndex(), page.getAttrs());
+            } catch (IOException e) {
+                logPageException(e, page.getIndex());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param pdfPage the page to render, in the document the renderer belongs to
+     */
+    private static PageRaster render(RasterDrawPdfWatermarker drawService, PDFRenderer renderer, PDPage pdfPage,
+                                     SelectedPage page, PageRasterCache cache) throws IOException {
+        if (cache == null) {
+            return drawService.render(renderer, pdfPage, page.getIndex(), page.getAttrs());
+        }
+        return cache.computeIfAbsent(pdfPage, page.getAttrs(),
+                () -> drawService.render(renderer, pdfPage, page.getIndex(), page.getAttrs()));
+    }
+
+    private List<List<SelectedPage>> chunks(List<SelectedPage> pages, PdfDocumentAttributes documentAttrs,
+                                            boolean incrementalSave) {
+        if (documentAttrs.getChunkSize() <= 0 || pages.isEmpty()) {
+            return List.of(pages);
+        }
+        if (executorService.isEmpty()) {
+            logger.warn("Watermarking in chunks requires an executor, watermarking the document as a whole");
+            return List.of(pages);
+        }
+        if (incrementalSave) {
+            logger.warn("A document watermarked in chunks can't be saved incrementally, watermarking it as a whole");
+            return List.of(pages);
+        }
+        return SelectedPage.chunks(pages, documentAttrs.getChunkSize());
+    }
+
+    /**
+     * Chunks of consecutive pages are watermarked on the executor, each in its own copy of the document.
+     * The watermarked pages are moved into one more copy on the calling thread, in page order, and that copy
+     * is saved: it keeps everything the pages don't own, such as the outline and the metadata.
+     * Every chunk in flight holds a copy of the document, so their number is bounded.
+     */
+    private void watermarkInChunks(PDDocument document, List<List<SelectedPage>> chunks,
+                                   PdfDocumentAttributes documentAttrs, OutputSink sink) throws IOException {
+        Deque<CompletableFuture<WatermarkedChunk>> inFlight = new ArrayDeque<>();
+        try (var views = DocumentViewPool.of(document, documentAttrs.getMemoryPolicy());
+             var merged = views.copy()) {
+            var merger = new ChunkMerger(merged);
+            try {
+                for (List<SelectedPage> chunk : chunks) {
+                    if (inFlight.size() >= documentAttrs.getChunkParallelism()) {
+                        merge(merger, inFlight.poll());
+                    }
+                    inFlight.add(CompletableFuture.supplyAsync(
+                            () -> watermarkChunk(views, chunk, documentAttrs.getRasterCache()), executorService.get()));
+                }
+                while (!inFlight.isEmpty()) {
+                    merge(merger, inFlight.poll());
+                }
+            } finally {
+                // the copies must not be closed while workers are still watermarking them
+                inFlight.forEach(chunk -> chunk.thenAccept(WatermarkedChunk::closeQuietly).exceptionally(e -> null).join());
+            }
+            save(merged, PDDocument::save, documentAttrs.getMemoryPolicy(), sink);
+        }
+    }
+
+    /**
+     * Watermarks the pages of a chunk in a new copy of the document the way the document is watermarked
+     * without an executor
+     */
+    private WatermarkedChunk watermarkChunk(DocumentViewPool views, List<SelectedPage> chunk, PageRasterCache cache) {
+        try {
+            var copy = views.copy();
+            try {
+                var pages = SelectedPage.inCopy(copy, chunk);
+                applyWatermark(copy, pages, WatermarkingMethod.EMBEDDED_IMAGES, this::watermarkEmbeddedImages);
+                applyWatermark(copy, pages, WatermarkingMethod.DRAW, (doc, p) -> sync(doc, p, cache));
+                var resources = new DocumentResourcePool(copy);
+                applyWatermark(copy, pages, WatermarkingMethod.OVERLAY, (doc, p) -> overlay(doc, p, resources));
+                // the copy is never saved, the font subsets must be in place before its pages are moved
+                resources.subsetFonts();
+                return new WatermarkedChunk(copy, pages);
+            } catch (IOException | RuntimeException e) {
+                copy.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void merge(ChunkMerger merger, CompletableFuture<WatermarkedChunk> pending) throws IOException {
+        WatermarkedChunk chunk;
+        try {
+            chunk = pending.join();
+        } catch (CompletionException e) {
+            logger.error("An error occurred during watermarking a chunk of pages", e.getCause());
+            throw new AsyncWatermarkPdfException(e.getCause());
+        }
+        try (var copy = chunk.document) {
+            merger.merge(copy, chunk.pages);
+        }
     }
 
-    private void logPageException(Exception e, int pageIndex){
+    private void logPageException(Throwable e, int pageIndex){
         logger.error(String.format("An error occurred during watermarking on page number %d", pageIndex), e);
     }
 
-    private byte[] convertPDDocumentToByteArray(PDDocument document) throws IOException {
-        try (var baos = new ByteArrayOutputStream()) {
-            document.save(baos);
-            return baos.toByteArray();
+    private void saveIncrementally(PDDocument document, PdfMemoryPolicy memoryPolicy, OutputSink sink) throws IOException {
+        try {
+            save(document, PDDocument::saveIncremental, memoryPolicy, sink);
+        } catch (IllegalStateException e) {
+            // PDFBox can only append to a document that was loaded from a file or a stream,
+            // it checks that before anything is written
+            logger.warn("The document was not loaded from a file or a stream, saving it in full");
+            save(document, PDDocument::save, memoryPolicy, sink);
+        }
+    }
+
+    /**
+     * With a memory policy the document is written to a scratch file that is then handed over to the sink,
+     * so a byte array result is allocated once instead of as a growing buffer and its copy.
+     */
+    private void save(PDDocument document, DocumentWriter writer, PdfMemoryPolicy memoryPolicy, OutputSink sink) throws IOException {
+        if (memoryPolicy == null) {
+            try (var output = sink.open()) {
+                writer.write(document, output);
+            }
+            return;
+        }
+        var file = memoryPolicy.createTempFile(".pdf");
+        try {
+            try (var output = new BufferedOutputStream(Files.newOutputStream(file))) {
+                writer.write(document, output);
+            }
+            sink.transfer(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private boolean canSaveIncrementally(PDDocument document) {
+        if (document.isEncrypted()) {
+            logger.warn("An encrypted document can't be saved incrementally, saving it in full");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * An incremental update only contains the objects flagged as updated and the new objects they refer to,
+     * so every watermarked page is flagged together with its resources and the path to it from the catalog.
+     */
+    private void markWatermarkedPagesUpdated(PDDocument document, List<PDPage> pages) {
+        document.getDocumentCatalog().getCOSObject().setNeedToBeUpdated(true);
+        pages.forEach(DefaultWatermarkPdfService::markPageUpdated);
+    }
+
+    private static void markPageUpdated(PDPage page) {
+        var pageDictionary = page.getCOSObject();
+        pageDictionary.setNeedToBeUpdated(true);
+
+        if (page.getResources() != null) {
+            var resources = page.getResources().getCOSObject();
+            resources.setNeedToBeUpdated(true);
+            for (COSName key : resources.keySet()) {
+                var entry = resources.getDictionaryObject(key);
+                if (entry instanceof COSDictionary) {
+                    ((COSDictionary) entry).setNeedToBeUpdated(true);
+                }
+            }
+        }
+
+        for (var parent = pageDictionary.getCOSDictionary(COSName.PARENT); parent != null;
+             parent = parent.getCOSDictionary(COSName.PARENT)) {
+            parent.setNeedToBeUpdated(true);
+        }
+    }
+
+    @FunctionalInterface
+    private interface DocumentWriter {
+        void write(PDDocument document, OutputStream output) throws IOException;
+    }
+
+    private static final class RenderedPage {
+        private final SelectedPage page;
+        private final CompletableFuture<PageRaster> raster;
+
+        private RenderedPage(SelectedPage page, CompletableFuture<PageRaster> raster) {
+            this.page = page;
+            this.raster = raster;
+        }
+    }
+
+    private static final class WatermarkedChunk {
+        private final PDDocument document;
+        private final List<SelectedPage> pages;
+
+        private WatermarkedChunk(PDDocument document, List<SelectedPage> pages) {
+            this.document = document;
+            this.pages = pages;
+        }
+
+        private void closeQuietly() {
+            try {
+                document.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a copy of the document", e);
+            }
         }
     }
 
@@ -0,0 +1,53 @@
+package com.markit.pdf;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkFingerprint;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.List;
+
+/**
+ * The {@link WatermarkFingerprint} of a PDF document, kept in its document information dictionary.
+ * <p>
+ * The document information is read without touching the pages, so checking the fingerprint costs
+ * next to nothing compared to watermarking the document.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class DocumentFingerprint {
+    private static final String KEY = "WatermarkItFingerprint";
+
+    private DocumentFingerprint() {
+    }
+
+    /**
+     * @param attrs the watermarks applied to the document
+     */
+    static boolean isPresent(PDDocument document, List<WatermarkAttributes> attrs) {
+        // read from the trailer, the document information would add an empty dictionary to a document without it
+        var information = document.getDocument().getTrailer().getCOSDictionary(COSName.INFO);
+        return information != null && !attrs.isEmpty() && WatermarkFingerprint.of(attrs).equals(information.getString(KEY));
+    }
+
+    /**
+     * Records the watermarks in the document, replacing the ones recorded before. The information dictionary
+     * is flagged as updated, so the fingerprint is written by an incremental save too. Watermarks whose fingerprint
+     * is not {@link WatermarkFingerprint#isRecorded recorded} remove the one recorded before, since the document
+     * no longer carries those watermarks.
+     *
+     * @param attrs the watermarks applied to the document, none to remove the fingerprint
+     */
+    static void write(PDDocument document, List<WatermarkAttributes> attrs) {
+        var fingerprint = WatermarkFingerprint.isRecorded(attrs) ? WatermarkFingerprint.of(attrs) : null;
+        var trailerInformation = document.getDocument().getTrailer().getCOSDictionary(COSName.INFO);
+        if (fingerprint == null && (trailerInformation == null || trailerInformation.getString(KEY) == null)) {
+            return;
+        }
+        var information = document.getDocumentInformation();
+        information.setCustomMetadataValue(KEY, fingerprint);
+        information.getCOSObject().setNeedToBeUpdated(true);
+    }
+}
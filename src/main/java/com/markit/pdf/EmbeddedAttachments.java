@@ -0,0 +1,247 @@
+package com.markit.pdf;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.formats.pdf.PdfDocumentAttributes;
+import com.markit.image.ImageTypeDetector;
+import com.markit.image.ImageWatermarker;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDNameTreeNode;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * The files attached to a PDF document through its EmbeddedFiles name tree, such as the documents
+ * of a PDF portfolio, watermarked with the watermarks of the document.
+ * <p>
+ * The attached files are read on the calling thread, since a document can't be read by several threads.
+ * Every attached PDF or image is then watermarked as an independent task on the executor: a PDF is parsed,
+ * watermarked by a watermarking service of its own, without an executor, and saved; an image is decoded,
+ * watermarked and encoded again. At most {@code MAX_ATTACHMENTS_IN_FLIGHT} files are held in memory at once:
+ * beyond that the oldest task is awaited and its result replaces the attached file before the next file is read.
+ * The rest replace the attached files once the pages are watermarked. Other attached files, and the files
+ * that fail to be watermarked, are left as they are.
+ * </p>
+ * <p>
+ * Every attached PDF is watermarked in a document of its own, with fonts of its own, so the tasks share
+ * no font objects with each other or with the document.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class EmbeddedAttachments {
+    private static final Log logger = LogFactory.getLog(EmbeddedAttachments.class);
+    private static final byte[] PDF_HEADER = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final int PDF_HEADER_SEARCH_LENGTH = 1024;
+    private static final int MAX_ATTACHMENTS_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final List<Attachment> attachments;
+
+    private EmbeddedAttachments(List<Attachment> attachments) {
+        this.attachments = attachments;
+    }
+
+    /**
+     * Starts watermarking the attached files
+     *
+     * @param attrs the watermarks applied to the document
+     * @param executor the executor of the tasks, none to watermark the files one after another on the calling thread
+     */
+    static EmbeddedAttachments watermark(PDDocument document, List<WatermarkAttributes> attrs,
+                                         Optional<Executor> executor) throws IOException {
+        return watermark(document, attrs, executor.orElse(Runnable::run));
+    }
+
+    private static EmbeddedAttachments watermark(PDDocument document, List<WatermarkAttributes> attrs,
+                                                 Executor executor) throws IOException {
+        var names = document.getDocumentCatalog().getNames();
+        var tree = names == null ? null : names.getEmbeddedFiles();
+        Deque<Attachment> inFlight = new ArrayDeque<>();
+        if (tree != null && !attrs.isEmpty()) {
+            try {
+                collect(document, tree, inFlight, attrs, executor);
+            } catch (IOException | RuntimeException e) {
+                inFlight.forEach(attachment -> attachment.watermarked.exceptionally(t -> null).join());
+                throw e;
+            }
+        }
+        return new EmbeddedAttachments(new ArrayList<>(inFlight));
+    }
+
+    private static void collect(PDDocument document, PDNameTreeNode<PDComplexFileSpecification> node,
+                                Deque<Attachment> inFlight, List<WatermarkAttributes> attrs,
+                                Executor executor) throws IOException {
+        Map<String, PDComplexFileSpecification> names = node.getNames();
+        if (names != null) {
+            for (Map.Entry<String, PDComplexFileSpecification> entry : names.entrySet()) {
+                var file = embeddedFile(entry.getValue());
+                if (file == null) {
+                    continue;
+                }
+                byte[] bytes;
+                try (var input = file.createInputStream()) {
+                    bytes = input.readAllBytes();
+                }
+                var type = typeOf(bytes);
+                if (type == null) {
+                    continue;
+                }
+                if (inFlight.size() == MAX_ATTACHMENTS_IN_FLIGHT) {
+                    embed(document, inFlight.poll());
+                }
+                // every task loads the fonts into the document it watermarks
+                var copies = attrs.stream().map(WatermarkAttributes::copyForDocument).collect(Collectors.toList());
+                // only the task refers to the bytes read, they are released once it has run
+                inFlight.add(new Attachment(entry.getKey(), entry.getValue(), file,
+                        CompletableFuture.supplyAsync(() -> watermark(bytes, type, copies), executor)));
+            }
+        }
+        var kids = node.getKids();
+        if (kids != null) {
+            for (PDNameTreeNode<PDComplexFileSpecification> kid : kids) {
+                collect(document, kid, inFlight, attrs, executor);
+            }
+        }
+    }
+
+    /**
+     * Waits for the attached files to be watermarked and replaces them in the document
+     */
+    void embed(PDDocument document) throws IOException {
+        try {
+            for (Attachment attachment : attachments) {
+                embed(document, attachment);
+            }
+        } finally {
+            attachments.forEach(attachment -> attachment.watermarked.exceptionally(e -> null).join());
+        }
+    }
+
+    private static void embed(PDDocument document, Attachment attachment) throws IOException {
+        byte[] watermarked;
+        try {
+            watermarked = attachment.watermarked.join();
+        } catch (CompletionException e) {
+            // an attached file that can't be watermarked, e.g. an encrypted PDF, doesn't fail the document
+            logger.warn(String.format("The attached file %s is left as it is, it can't be watermarked", attachment.name), e.getCause());
+            return;
+        }
+        replace(document, attachment, watermarked);
+    }
+
+    private static void replace(PDDocument document, Attachment attachment, byte[] watermarked) throws IOException {
+        var file = new PDEmbeddedFile(document, new ByteArrayInputStream(watermarked), COSName.FLATE_DECODE);
+        file.setSubtype(attachment.file.getSubtype());
+        file.setSize(watermarked.length);
+        file.setCreationDate(attachment.file.getCreationDate());
+        file.setModDate(Calendar.getInstance());
+
+        var specification = attachment.specification;
+        if (specification.getEmbeddedFile() != null) {
+            specification.setEmbeddedFile(file);
+        }
+        if (specification.getEmbeddedFileUnicode() != null) {
+            specification.setEmbeddedFileUnicode(file);
+        }
+        // an incremental update writes the changed file specification, which refers to the new file
+        specification.getCOSObject().setNeedToBeUpdated(true);
+        var embeddedFiles = specification.getCOSObject().getCOSDictionary(COSName.EF);
+        if (embeddedFiles != null) {
+            embeddedFiles.setNeedToBeUpdated(true);
+        }
+    }
+
+    private static byte[] watermark(byte[] bytes, String type, List<WatermarkAttributes> attrs) {
+        try {
+            if (type.equals("PDF")) {
+                try (var attached = PDDocument.load(bytes)) {
+                    var documentAttrs = new PdfDocumentAttributes();
+                    documentAttrs.setWatermarkAttachments(true);
+                    // the task itself runs on the executor, the attached document is watermarked on its thread
+                    var pdfServiceFactory = (WatermarkPdfServiceFactory) ServiceFactory.getInstance()
+                            .getService(WatermarkPdfServiceFactory.class);
+                    return pdfServiceFactory.create(null).watermark(attached, attrs, documentAttrs);
+                }
+            }
+            var imageWatermarker = (ImageWatermarker) ServiceFactory.getInstance().getService(ImageWatermarker.class);
+            return imageWatermarker.watermark(bytes, attrs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The file the specification embeds, the Unicode one first
+     */
+    private static PDEmbeddedFile embeddedFile(PDComplexFileSpecification specification) {
+        return specification.getEmbeddedFileUnicode() != null
+                ? specification.getEmbeddedFileUnicode()
+                : specification.getEmbeddedFile();
+    }
+
+    /**
+     * "PDF", the type of an image that can be written again, or null for a file that is not watermarked.
+     * A PDF may have some bytes before its header.
+     */
+    private static String typeOf(byte[] bytes) {
+        if (isPdf(bytes)) {
+            return "PDF";
+        }
+        try {
+            var type = ImageTypeDetector.detect(bytes);
+            return ImageIO.getImageWritersByFormatName(type.toLowerCase()).hasNext() ? type : null;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPdf(byte[] bytes) {
+        int end = Math.min(bytes.length, PDF_HEADER_SEARCH_LENGTH) - PDF_HEADER.length;
+        for (int offset = 0; offset <= end; offset++) {
+            int i = 0;
+            while (i < PDF_HEADER.length && bytes[offset + i] == PDF_HEADER[i]) {
+                i++;
+            }
+            if (i == PDF_HEADER.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Attachment {
+        private final String name;
+        private final PDComplexFileSpecification specification;
+        private final PDEmbeddedFile file;
+        private final CompletableFuture<byte[]> watermarked;
+
+        private Attachment(String name, PDComplexFileSpecification specification, PDEmbeddedFile file,
+                           CompletableFuture<byte[]> watermarked) {
+            this.name = name;
+            this.specification = specification;
+            this.file = file;
+            this.watermarked = watermarked;
+        }
+    }
+}
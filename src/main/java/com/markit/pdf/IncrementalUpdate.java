@@ -0,0 +1,190 @@
+package com.markit.pdf;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes an incremental update section that replaces some objects of a saved PDF file.
+ * <p>
+ * The replacements are written under the keys of the objects they replace. The dictionaries and streams
+ * they refer to are written as new objects numbered after the last object of the file; everything else
+ * is written inline. The section ends with its own cross-reference table and a trailer pointing back
+ * to the previous one, so the file followed by the section is a complete PDF file.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class IncrementalUpdate {
+    private static final byte[] EOL = {'\n'};
+
+    private final long offset;
+    private final COSDictionary trailer;
+    private final Map<COSBase, COSObjectKey> keys = new IdentityHashMap<>();
+    private final Deque<COSBase> pending = new ArrayDeque<>();
+    private final Map<COSObjectKey, Long> xref = new TreeMap<>();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private long nextNumber;
+
+    /**
+     * @param fileLength the length of the file the section is appended to
+     * @param trailer the trailer of the file, with the offset of its cross-reference table as /Prev
+     */
+    IncrementalUpdate(long fileLength, COSDictionary trailer) {
+        this.offset = fileLength;
+        this.trailer = trailer;
+        this.nextNumber = trailer.getLong(COSName.SIZE);
+    }
+
+    /**
+     * Writes the object under the key of an object of the file
+     */
+    void replace(COSObjectKey key, COSBase object) {
+        keys.put(object, key);
+        pending.add(object);
+    }
+
+    byte[] toByteArray() throws IOException {
+        output.write(EOL);
+        while (!pending.isEmpty()) {
+            writeObject(pending.poll());
+        }
+        long xrefOffset = offset + output.size();
+        writeXref();
+        write("trailer\n");
+        var sectionTrailer = new COSDictionary(trailer);
+        sectionTrailer.setLong(COSName.SIZE, nextNumber);
+        writeDirect(sectionTrailer);
+        write("\nstartxref\n" + xrefOffset + "\n%%EOF\n");
+        return output.toByteArray();
+    }
+
+    private void writeObject(COSBase object) throws IOException {
+        var key = keys.get(object);
+        xref.put(key, offset + output.size());
+        write(key.getNumber() + " " + key.getGeneration() + " obj\n");
+        if (object instanceof COSStream) {
+            writeStream((COSStream) object);
+        } else {
+            writeDirect(object);
+        }
+        write("\nendobj\n");
+    }
+
+    private void writeStream(COSStream stream) throws IOException {
+        var data = new ByteArrayOutputStream();
+        try (var input = stream.createRawInputStream()) {
+            input.transferTo(data);
+        }
+        var dictionary = new COSDictionary(stream);
+        dictionary.setLong(COSName.LENGTH, data.size());
+        writeDirect(dictionary);
+        write("\nstream\r\n");
+        data.writeTo(output);
+        write("\r\nendstream");
+    }
+
+    private void writeXref() throws IOException {
+        write("xref\n0 1\n0000000000 65535 f\r\n");
+        var entries = xref.entrySet().iterator();
+        var entry = entries.hasNext() ? entries.next() : null;
+        while (entry != null) {
+            // a subsection for every run of consecutive object numbers
+            var run = new StringBuilder();
+            long first = entry.getKey().getNumber();
+            long count = 0;
+            do {
+                run.append(String.format("%010d %05d n\r\n", entry.getValue(), entry.getKey().getGeneration()));
+                count++;
+                entry = entries.hasNext() ? entries.next() : null;
+            } while (entry != null && entry.getKey().getNumber() == first + count);
+            write(first + " " + count + "\n");
+            write(run.toString());
+        }
+    }
+
+    private void writeDirect(COSBase base) throws IOException {
+        if (base instanceof COSObject) {
+            var object = (COSObject) base;
+            if (object.getObjectNumber() > 0) {
+                // an object of the file
+                write(object.getObjectNumber() + " " + object.getGenerationNumber() + " R");
+                return;
+            }
+            base = object.getObject();
+        }
+        if (base instanceof COSDictionary) {
+            write("<<");
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) base).entrySet()) {
+                entry.getKey().writePDF(output);
+                write(" ");
+                writeValue(entry.getValue());
+                write("\n");
+            }
+            write(">>");
+        } else if (base instanceof COSArray) {
+            write("[");
+            for (COSBase item : (COSArray) base) {
+                writeValue(item);
+                write(" ");
+            }
+            write("]");
+        } else if (base instanceof COSString) {
+            COSWriter.writeString((COSString) base, output);
+        } else if (base instanceof COSName) {
+            ((COSName) base).writePDF(output);
+        } else if (base instanceof COSInteger) {
+            ((COSInteger) base).writePDF(output);
+        } else if (base instanceof COSFloat) {
+            ((COSFloat) base).writePDF(output);
+        } else if (base instanceof COSBoolean) {
+            ((COSBoolean) base).writePDF(output);
+        } else {
+            COSNull.NULL.writePDF(output);
+        }
+    }
+
+    /**
+     * Dictionaries and streams are written as objects of their own, so an object shared by several others
+     * is written once
+     */
+    private void writeValue(COSBase value) throws IOException {
+        var target = value instanceof COSObject && ((COSObject) value).getObjectNumber() <= 0
+                ? ((COSObject) value).getObject() : value;
+        if (target instanceof COSDictionary) {
+            var key = keys.get(target);
+            if (key == null) {
+                key = new COSObjectKey(nextNumber++, 0);
+                keys.put(target, key);
+                pending.add(target);
+            }
+            write(key.getNumber() + " " + key.getGeneration() + " R");
+        } else {
+            writeDirect(value);
+        }
+    }
+
+    private void write(String text) throws IOException {
+        output.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
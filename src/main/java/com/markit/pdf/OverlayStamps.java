@@ -0,0 +1,75 @@
+package com.markit.pdf;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.OverlayPdfWatermarker;
+import com.markit.pdf.overlay.StampOverlayPdfWatermarker;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.resources.StampMarker;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Applies the OVERLAY watermarks through whichever {@link OverlayPdfWatermarker} is registered.
+ * A {@link StampOverlayPdfWatermarker} is asked for its stamps; the watermarks of any other watermarker
+ * become a stamp by watermarking a blank page of the same geometry and taking its content.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class OverlayStamps {
+
+    private OverlayStamps() {
+    }
+
+    /**
+     * Watermarks the page
+     *
+     * @param pageIndex the index of the page in the document
+     */
+    static void watermark(OverlayPdfWatermarker overlayService, PDDocument document, PDPage page, int pageIndex,
+                          List<WatermarkAttributes> attrs, DocumentResourcePool resources) throws IOException {
+        if (overlayService instanceof StampOverlayPdfWatermarker) {
+            ((StampOverlayPdfWatermarker) overlayService).watermark(document, page, attrs, resources);
+        } else {
+            overlayService.watermark(document, pageIndex, attrs);
+        }
+    }
+
+    /**
+     * Returns the marked stamp with the watermarks of the page, without drawing it on the page
+     */
+    static PDFormXObject stamp(OverlayPdfWatermarker overlayService, PDDocument document, PDPage page,
+                               List<WatermarkAttributes> attrs, DocumentResourcePool resources) throws IOException {
+        if (overlayService instanceof StampOverlayPdfWatermarker) {
+            return ((StampOverlayPdfWatermarker) overlayService).stamp(document, page, attrs, resources);
+        }
+        // the blank page is in the document only while it is watermarked
+        var mediaBox = page.getMediaBox();
+        var blank = new PDPage(new PDRectangle(mediaBox.getLowerLeftX(), mediaBox.getLowerLeftY(),
+                mediaBox.getWidth(), mediaBox.getHeight()));
+        blank.setCropBox(page.getCropBox());
+        blank.setRotation(page.getRotation());
+        document.addPage(blank);
+        try {
+            overlayService.watermark(document, document.getNumberOfPages() - 1, attrs);
+        } finally {
+            document.removePage(blank);
+        }
+
+        var stamp = new PDFormXObject(document);
+        stamp.setResources(blank.getResources() != null ? blank.getResources() : new PDResources());
+        stamp.setBBox(blank.getMediaBox());
+        try (var input = blank.getContents(); var output = stamp.getStream().createOutputStream(COSName.FLATE_DECODE)) {
+            input.transferTo(output);
+        }
+        StampMarker.mark(stamp);
+        return stamp;
+    }
+}
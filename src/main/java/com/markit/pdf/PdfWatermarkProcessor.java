@@ -1,6 +1,5 @@
 package com.markit.pdf;
 
-import com.markit.api.WatermarkAttributes;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.IOException;
@@ -12,5 +11,5 @@ import java.util.List;
  */
 @FunctionalInterface
 interface PdfWatermarkProcessor {
-    void apply(PDDocument document, List<WatermarkAttributes> attributes) throws IOException;
+    void apply(PDDocument document, List<SelectedPage> pages) throws IOException;
 }
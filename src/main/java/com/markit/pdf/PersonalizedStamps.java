@@ -0,0 +1,189 @@
+package com.markit.pdf;
+
+import com.markit.api.OutputSink;
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.formats.pdf.WatermarkPDFService;
+import com.markit.pdf.overlay.OverlayPdfWatermarker;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.resources.PageGeometry;
+import com.markit.pdf.overlay.resources.StampKey;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The overlay stamps that carry the name of a recipient, written into one saved base file for every recipient.
+ * <p>
+ * Every page with a personalized watermark draws an empty placeholder stamp, one per set of watermarks and
+ * page geometry, just like an ordinary overlay stamp. The document is saved once as the base. A copy for
+ * a recipient is the base followed by an incremental update that replaces the placeholders with stamps
+ * compiled for that recipient, so only the stamps and their resources are written per recipient.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class PersonalizedStamps {
+    private final Map<StampKey, Placeholder> placeholders = new LinkedHashMap<>();
+    private byte[] base;
+    private COSDictionary trailer;
+
+    private PersonalizedStamps() {
+    }
+
+    /**
+     * Draws the placeholders on the pages
+     *
+     * @param pages the pages with their personalized watermarks
+     */
+    static PersonalizedStamps prepare(PDDocument document, List<SelectedPage> pages) throws IOException {
+        var stamps = new PersonalizedStamps();
+        for (SelectedPage page : pages) {
+            var geometry = PageGeometry.of(page.getPage());
+            var key = new StampKey(page.getAttrs(), geometry);
+            var placeholder = stamps.placeholders.get(key);
+            if (placeholder == null) {
+                placeholder = new Placeholder(page.getAttrs(), geometry, page.getIndex(), createPlaceholder(document, geometry));
+                stamps.placeholders.put(key, placeholder);
+            }
+            try (PDPageContentStream contentStream =
+                         new PDPageContentStream(document, page.getPage(), PDPageContentStream.AppendMode.APPEND, true, true)) {
+                contentStream.drawForm(placeholder.form);
+            }
+            if (placeholder.name == null) {
+                // the name the content stream gave the placeholder in the resources of its first page
+                placeholder.name = page.getPage().getResources().add(placeholder.form);
+            }
+        }
+        return stamps;
+    }
+
+    private static PDFormXObject createPlaceholder(PDDocument document, PageGeometry geometry) throws IOException {
+        var mediaBox = geometry.getMediaBox();
+        var form = new PDFormXObject(document);
+        form.setResources(new PDResources());
+        form.setBBox(new PDRectangle(mediaBox.getLowerLeftX(), mediaBox.getLowerLeftY(), mediaBox.getWidth(), mediaBox.getHeight()));
+        form.getStream().createOutputStream().close();
+        return form;
+    }
+
+    /**
+     * Finds the placeholders in the saved base file
+     */
+    void load(byte[] base) throws IOException {
+        try (var document = PDDocument.load(base)) {
+            for (Placeholder placeholder : placeholders.values()) {
+                var xObjects = document.getPage(placeholder.pageIndex).getResources().getCOSObject()
+                        .getCOSDictionary(COSName.XOBJECT);
+                placeholder.key = new COSObjectKey((COSObject) xObjects.getItem(placeholder.name));
+            }
+            var baseTrailer = document.getDocument().getTrailer();
+            trailer = new COSDictionary();
+            trailer.setItem(COSName.SIZE, baseTrailer.getItem(COSName.SIZE));
+            trailer.setItem(COSName.ROOT, baseTrailer.getItem(COSName.ROOT));
+            trailer.setItem(COSName.INFO, baseTrailer.getItem(COSName.INFO));
+            trailer.setItem(COSName.ID, baseTrailer.getItem(COSName.ID));
+            trailer.setLong(COSName.PREV, document.getDocument().getStartXref());
+        }
+        this.base = base;
+    }
+
+    /**
+     * Writes the copy of the document for the recipient. Copies for different recipients may be written
+     * at the same time.
+     */
+    void write(String recipient, OutputSink sink) throws IOException {
+        var update = update(recipient);
+        try (var output = sink.open()) {
+            output.write(base);
+            output.write(update);
+        }
+    }
+
+    /**
+     * The stamps are compiled in a scratch document by the overlay watermarker, as for any other page.
+     * The fonts are subset once all the stamps are written.
+     * <p>
+     * The stamps of the recipients are compiled one at a time: the fonts of the stamps are parsed once for the JVM
+     * and are not safe to measure, encode or subset from several threads. Only the updates are written in parallel.
+     * </p>
+     */
+    private byte[] update(String recipient) throws IOException {
+        try (var scratch = new PDDocument()) {
+            List<PDFormXObject> stamps;
+            synchronized (this) {
+                stamps = compileStamps(scratch, recipient);
+            }
+
+            var update = new IncrementalUpdate(base.length, trailer);
+            int i = 0;
+            for (Placeholder placeholder : placeholders.values()) {
+                update.replace(placeholder.key, stamps.get(i++).getCOSObject());
+            }
+            return update.toByteArray();
+        }
+    }
+
+    private List<PDFormXObject> compileStamps(PDDocument scratch, String recipient) throws IOException {
+        var overlayService = (OverlayPdfWatermarker) ServiceFactory.getInstance().getService(OverlayPdfWatermarker.class);
+        var resources = new DocumentResourcePool(scratch);
+        Map<WatermarkAttributes, WatermarkAttributes> personalized = new IdentityHashMap<>();
+        List<PDFormXObject> stamps = new ArrayList<>(placeholders.size());
+        for (Placeholder placeholder : placeholders.values()) {
+            var attrs = placeholder.attrs.stream()
+                    .map(attr -> personalized.computeIfAbsent(attr, a -> personalize(a, recipient)))
+                    .collect(Collectors.toList());
+            var page = new PDPage(placeholder.geometry.getMediaBox().toRectangle());
+            page.setCropBox(placeholder.geometry.getCropBox().toRectangle());
+            page.setRotation(placeholder.geometry.getRotation());
+            stamps.add(OverlayStamps.stamp(overlayService, scratch, page, attrs, resources));
+        }
+        resources.subsetFonts();
+        return stamps;
+    }
+
+    private static WatermarkAttributes personalize(WatermarkAttributes attr, String recipient) {
+        var copy = attr.copyForDocument();
+        copy.setText(attr.getText().replace(WatermarkPDFService.RECIPIENT, recipient));
+        return copy;
+    }
+
+    /**
+     * A watermark is personalized when its text contains the recipient placeholder
+     */
+    static boolean isPersonalized(WatermarkAttributes attr) {
+        return attr.getText().contains(WatermarkPDFService.RECIPIENT);
+    }
+
+    private static final class Placeholder {
+        private final List<WatermarkAttributes> attrs;
+        private final PageGeometry geometry;
+        private final int pageIndex;
+        private final PDFormXObject form;
+        private COSName name;
+        private COSObjectKey key;
+
+        private Placeholder(List<WatermarkAttributes> attrs, PageGeometry geometry, int pageIndex, PDFormXObject form) {
+            this.attrs = attrs;
+            this.geometry = geometry;
+            this.pageIndex = pageIndex;
+            this.form = form;
+        }
+    }
+}
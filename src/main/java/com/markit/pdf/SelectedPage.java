@@ -0,0 +1,147 @@
+package com.markit.pdf;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkingMethod;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A page to be watermarked together with the watermarks selected for it.
+ * <p>
+ * Looking a page up by its index walks the page tree, so the pages are selected in a single pass over the tree
+ * and every page predicate is evaluated once per page.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class SelectedPage {
+    private final int index;
+    private final PDPage page;
+    private final List<WatermarkAttributes> attrs;
+
+    private SelectedPage(int index, PDPage page, List<WatermarkAttributes> attrs) {
+        this.index = index;
+        this.page = page;
+        this.attrs = attrs;
+    }
+
+    /**
+     * Selects the pages with at least one watermark, in page order
+     */
+    static List<SelectedPage> select(PDDocument document, List<WatermarkAttributes> attrs) {
+        var selected = new ArrayList<SelectedPage>();
+        if (attrs.isEmpty()) {
+            return selected;
+        }
+        int pageIndex = 0;
+        for (PDPage page : document.getPages()) {
+            final int pIndex = pageIndex++;
+            var pageAttrs = attrs.stream()
+                    .filter(attr -> attr.getPagePredicate().test(pIndex))
+                    .collect(Collectors.toList());
+            if (!pageAttrs.isEmpty()) {
+                selected.add(new SelectedPage(pIndex, page, pageAttrs));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Selects the pages watermarked with the method, keeping only the watermarks of that method
+     */
+    static List<SelectedPage> withMethod(List<SelectedPage> pages, WatermarkingMethod method) {
+        var selected = new ArrayList<SelectedPage>();
+        for (SelectedPage page : pages) {
+            var methodAttrs = page.attrs.stream()
+                    .filter(attr -> attr.getMethod().equals(method))
+                    .collect(Collectors.toList());
+            if (!methodAttrs.isEmpty()) {
+                selected.add(new SelectedPage(page.index, page.page, methodAttrs));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Divides the byte budget evenly between the pages watermarked with the DRAW method,
+     * giving their DRAW watermarks a copy with their share of it
+     */
+    static List<SelectedPage> withDrawByteBudget(List<SelectedPage> pages, long budget) {
+        long drawPages = pages.stream()
+                .filter(page -> page.attrs.stream().anyMatch(attr -> attr.getMethod() == WatermarkingMethod.DRAW))
+                .count();
+        if (drawPages == 0) {
+            return pages;
+        }
+        long share = Math.max(budget / drawPages, 1);
+        var budgetedAttrs = new IdentityHashMap<WatermarkAttributes, WatermarkAttributes>();
+        var budgeted = new ArrayList<SelectedPage>(pages.size());
+        for (SelectedPage page : pages) {
+            var attrs = page.attrs.stream()
+                    .map(attr -> attr.getMethod() != WatermarkingMethod.DRAW ? attr
+                            : budgetedAttrs.computeIfAbsent(attr, a -> a.withPageByteBudget(share)))
+                    .collect(Collectors.toList());
+            budgeted.add(new SelectedPage(page.index, page.page, attrs));
+        }
+        return budgeted;
+    }
+
+    /**
+     * Splits the pages into chunks of consecutive page indexes, leaving out the chunks without selected pages
+     */
+    static List<List<SelectedPage>> chunks(List<SelectedPage> pages, int chunkSize) {
+        var chunks = new ArrayList<List<SelectedPage>>();
+        List<SelectedPage> chunk = null;
+        int chunkIndex = -1;
+        for (SelectedPage page : pages) {
+            if (page.index / chunkSize != chunkIndex) {
+                chunkIndex = page.index / chunkSize;
+                chunk = new ArrayList<>();
+                chunks.add(chunk);
+            }
+            chunk.add(page);
+        }
+        return chunks;
+    }
+
+    /**
+     * Selects the same pages in a copy of the document, walking its page tree only as far as the last page.
+     * The watermarks are copied too, once each, since watermarking keeps objects of the document in them.
+     */
+    static List<SelectedPage> inCopy(PDDocument copy, List<SelectedPage> pages) {
+        var selected = new ArrayList<SelectedPage>(pages.size());
+        var copiedAttrs = new IdentityHashMap<WatermarkAttributes, WatermarkAttributes>();
+        var iterator = copy.getPages().iterator();
+        PDPage copyPage = null;
+        int pageIndex = -1;
+        for (SelectedPage page : pages) {
+            while (pageIndex < page.index) {
+                copyPage = iterator.next();
+                pageIndex++;
+            }
+            var attrs = page.attrs.stream()
+                    .map(attr -> copiedAttrs.computeIfAbsent(attr, WatermarkAttributes::copyForDocument))
+                    .collect(Collectors.toList());
+            selected.add(new SelectedPage(page.index, copyPage, attrs));
+        }
+        return selected;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    PDPage getPage() {
+        return page;
+    }
+
+    List<WatermarkAttributes> getAttrs() {
+        return attrs;
+    }
+}
@@ -0,0 +1,124 @@
+package com.markit.pdf;
+
+import com.markit.pdf.overlay.OverlayPdfWatermarker;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.resources.StampMarker;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The OVERLAY watermark layer of a document: the marked stamps its pages draw.
+ * <p>
+ * A page draws a stamp by its name in the XObject resources, so the layer is replaced by pointing that name
+ * at another stamp. The content of the page is not touched, and the stamps no page refers to any more
+ * are dropped when the document is saved. A page that had no stamp gets one drawn as usual.
+ * Pages often share their resources; when the pages sharing them need different stamps, the page
+ * gets its own copy of the resources.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class WatermarkLayer {
+    private final PDDocument document;
+    private final DocumentResourcePool resources;
+    private final OverlayPdfWatermarker overlayService;
+    private final Map<COSDictionary, COSStream> replacements = new IdentityHashMap<>();
+    private PDFormXObject empty;
+
+    private WatermarkLayer(PDDocument document) {
+        this.document = document;
+        this.resources = new DocumentResourcePool(document);
+        this.overlayService = (OverlayPdfWatermarker) ServiceFactory.getInstance().getService(OverlayPdfWatermarker.class);
+    }
+
+    /**
+     * Replaces the watermark layer with the stamps of the selected pages. The pages that are not selected
+     * lose their watermark.
+     *
+     * @param pages the pages with their OVERLAY watermarks, none to remove the layer
+     * @return the pages that changed
+     */
+    static List<PDPage> replace(PDDocument document, List<SelectedPage> pages) throws IOException {
+        var layer = new WatermarkLayer(document);
+        Map<Integer, SelectedPage> selected = new HashMap<>();
+        pages.forEach(page -> selected.put(page.getIndex(), page));
+
+        // a stamp of a page-level watermarker is drawn on a blank page added to the document for the time being
+        List<PDPage> all = new ArrayList<>(document.getNumberOfPages());
+        document.getPages().forEach(all::add);
+        List<PDPage> changed = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex < all.size(); pageIndex++) {
+            var page = all.get(pageIndex);
+            if (layer.replace(page, pageIndex, selected.get(pageIndex))) {
+                changed.add(page);
+            }
+        }
+        return changed;
+    }
+
+    private boolean replace(PDPage page, int pageIndex, SelectedPage selected) throws IOException {
+        var xObjects = page.getResources() == null ? null : page.getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT);
+        var stamps = xObjects == null ? List.<COSName>of() : xObjects.keySet().stream()
+                .filter(name -> StampMarker.isMarked(xObjects.getItem(name)))
+                .collect(Collectors.toList());
+        if (stamps.isEmpty()) {
+            if (selected == null) {
+                return false;
+            }
+            OverlayStamps.watermark(overlayService, document, page, pageIndex, selected.getAttrs(), resources);
+            return true;
+        }
+
+        var stamp = selected == null ? empty() : OverlayStamps.stamp(overlayService, document, page, selected.getAttrs(), resources);
+        var replaced = replacements.get(xObjects);
+        if (replaced == stamp.getCOSObject()) {
+            // the resources are shared with a page that has the same stamp
+            return false;
+        }
+        var target = replaced == null ? xObjects : ownXObjects(page, xObjects);
+        target.setItem(stamps.get(0), stamp);
+        for (COSName name : stamps.subList(1, stamps.size())) {
+            target.setItem(name, empty());
+        }
+        replacements.put(target, stamp.getCOSObject());
+        return true;
+    }
+
+    private static COSDictionary ownXObjects(PDPage page, COSDictionary xObjects) {
+        var pageResources = new COSDictionary(page.getResources().getCOSObject());
+        var ownXObjects = new COSDictionary(xObjects);
+        pageResources.setItem(COSName.XOBJECT, ownXObjects);
+        page.getCOSObject().setItem(COSName.RESOURCES, pageResources);
+        return ownXObjects;
+    }
+
+    /**
+     * A removed stamp is replaced with an empty one, which keeps the mark for the next replacement
+     */
+    private PDFormXObject empty() throws IOException {
+        if (empty == null) {
+            empty = new PDFormXObject(document);
+            empty.setResources(new PDResources());
+            empty.setBBox(new PDRectangle(0, 0, 0, 0));
+            empty.getStream().createOutputStream().close();
+            StampMarker.mark(empty);
+        }
+        return empty;
+    }
+}
@@ -1,10 +1,14 @@
 package com.markit.pdf;
 
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
+import com.markit.api.formats.pdf.PdfDocumentAttributes;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * watermark pdf files
@@ -22,4 +26,89 @@ public interface WatermarkPdfService {
      * @return A byte array representing the watermarked PDF file.
      */
     byte[] watermark(PDDocument pdDocument, List<WatermarkAttributes> attrs) throws IOException;
+
+    /**
+     * Adds a text watermark to a PDF file.
+     *
+     * @param pdDocument The pdfbox pdf file representation to which the watermark will be applied.
+     * @param attrs The attributes of watermark
+     * @param documentAttrs The options that apply to the document as a whole
+     * @return A byte array representing the watermarked PDF file.
+     * @since 1.5.0
+     */
+    default byte[] watermark(PDDocument pdDocument, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs) throws IOException {
+        return watermark(pdDocument, attrs);
+    }
+
+    /**
+     * Adds a text watermark to a PDF file and writes the result to the sink.
+     *
+     * @param pdDocument The pdfbox pdf file representation to which the watermark will be applied.
+     * @param attrs The attributes of watermark
+     * @param documentAttrs The options that apply to the document as a whole
+     * @param sink The destination of the watermarked PDF file
+     * @since 1.5.0
+     */
+    default void watermark(PDDocument pdDocument, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                           OutputSink sink) throws IOException {
+        var result = watermark(pdDocument, attrs, documentAttrs);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
+
+    /**
+     * Whether a PDF file already carries the same watermarks, as recorded by an earlier watermarking
+     *
+     * @param pdDocument The pdfbox pdf file representation.
+     * @param attrs The attributes of watermark
+     * @since 1.5.0
+     */
+    default boolean isWatermarked(PDDocument pdDocument, List<WatermarkAttributes> attrs) {
+        return false;
+    }
+
+    /**
+     * Replaces the OVERLAY watermarks previously added to a PDF file with new ones and writes the result
+     * to the sink, as an incremental update when possible.
+     *
+     * @param pdDocument The pdfbox pdf file representation whose watermarks will be replaced.
+     * @param attrs The attributes of the new OVERLAY watermarks, none to remove the watermarks
+     * @param documentAttrs The options that apply to the document as a whole
+     * @param sink The destination of the watermarked PDF file
+     * @since 1.5.0
+     */
+    default void replaceWatermark(PDDocument pdDocument, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                                  OutputSink sink) throws IOException {
+        throw new UnsupportedOperationException("Replacing watermarks is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Adds the watermarks to a PDF file without saving it. The document stays open.
+     *
+     * @param pdDocument The pdfbox pdf file representation to which the watermark will be applied.
+     * @param attrs The attributes of watermark
+     * @param documentAttrs The options that apply to the document as a whole
+     * @since 1.5.0
+     */
+    default void watermarkDocument(PDDocument pdDocument, List<WatermarkAttributes> attrs,
+                                   PdfDocumentAttributes documentAttrs) throws IOException {
+        throw new UnsupportedOperationException("Watermarking without saving is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Writes a copy of a PDF file for every recipient, putting the recipient into the watermarks whose text
+     * contains {@link com.markit.api.formats.pdf.WatermarkPDFService#RECIPIENT}.
+     *
+     * @param pdDocument The pdfbox pdf file representation to which the watermarks will be applied.
+     * @param attrs The attributes of watermark
+     * @param documentAttrs The options that apply to the document as a whole
+     * @param recipients The values put into the personalized watermarks, one copy each
+     * @param sinks The destination of the copy for a recipient
+     * @since 1.5.0
+     */
+    default void personalize(PDDocument pdDocument, List<WatermarkAttributes> attrs, PdfDocumentAttributes documentAttrs,
+                             Stream<String> recipients, Function<String, OutputSink> sinks) throws IOException {
+        throw new UnsupportedOperationException("Personalized copies are not supported by " + getClass().getName());
+    }
 }
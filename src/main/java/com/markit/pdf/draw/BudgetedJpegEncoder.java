@@ -0,0 +1,106 @@
+package com.markit.pdf.draw;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Encodes a raster as JPEG with the highest quality that keeps it within a byte budget.
+ * <p>
+ * The quality is searched on an estimate rather than on full encodes: every {@link #SAMPLE_INTERVAL}-th stripe
+ * of {@link #STRIPE_HEIGHT} rows is copied into a sample once, the sample is encoded at each probed quality
+ * and its size is scaled up to the whole raster. Stripes keep the full resolution, so the estimate follows
+ * the detail of the page, and it slightly overestimates as every encode carries its own headers.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class BudgetedJpegEncoder {
+    static final float MIN_QUALITY = 0.3f;
+    static final float MAX_QUALITY = 0.9f;
+    private static final int STRIPE_HEIGHT = 16;
+    private static final int SAMPLE_INTERVAL = 8;
+    private static final int SEARCH_STEPS = 5;
+
+    /**
+     * Returns the highest quality whose estimated size is within the budget,
+     * empty if even {@link #MIN_QUALITY} exceeds it
+     */
+    Optional<Float> fit(BufferedImage image, long budget) throws IOException {
+        var sample = sample(image);
+        double ratio = (double) image.getHeight() / sample.getHeight();
+        if (estimate(sample, ratio, MIN_QUALITY) > budget) {
+            return Optional.empty();
+        }
+        if (estimate(sample, ratio, MAX_QUALITY) <= budget) {
+            return Optional.of(MAX_QUALITY);
+        }
+        float low = MIN_QUALITY;
+        float high = MAX_QUALITY;
+        for (int i = 0; i < SEARCH_STEPS; i++) {
+            float quality = (low + high) / 2;
+            if (estimate(sample, ratio, quality) <= budget) {
+                low = quality;
+            } else {
+                high = quality;
+            }
+        }
+        return Optional.of(low);
+    }
+
+    /**
+     * The estimated size of the raster encoded at the lowest quality
+     */
+    long estimateAtMinQuality(BufferedImage image) throws IOException {
+        var sample = sample(image);
+        return estimate(sample, (double) image.getHeight() / sample.getHeight(), MIN_QUALITY);
+    }
+
+    byte[] encode(BufferedImage image, float quality) throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        var output = new ByteArrayOutputStream();
+        try (var imageOutput = new MemoryCacheImageOutputStream(output)) {
+            var param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private long estimate(BufferedImage sample, double ratio, float quality) throws IOException {
+        return (long) Math.ceil(encode(sample, quality).length * ratio);
+    }
+
+    private static BufferedImage sample(BufferedImage image) {
+        int stripes = (image.getHeight() + STRIPE_HEIGHT - 1) / STRIPE_HEIGHT;
+        if (stripes < SAMPLE_INTERVAL * 2 || image.getType() == BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+        int sampledStripes = (stripes + SAMPLE_INTERVAL - 1) / SAMPLE_INTERVAL;
+        int rows = 0;
+        for (int i = 0; i < sampledStripes; i++) {
+            int top = i * SAMPLE_INTERVAL * STRIPE_HEIGHT;
+            rows += Math.min(STRIPE_HEIGHT, image.getHeight() - top);
+        }
+        var sample = new BufferedImage(image.getWidth(), rows, image.getType());
+        var raster = sample.getRaster();
+        int row = 0;
+        for (int i = 0; i < sampledStripes; i++) {
+            int top = i * SAMPLE_INTERVAL * STRIPE_HEIGHT;
+            int height = Math.min(STRIPE_HEIGHT, image.getHeight() - top);
+            raster.setRect(0, row - top, image.getRaster().createChild(0, top, image.getWidth(), height, 0, top, null));
+            row += height;
+        }
+        return sample;
+    }
+}
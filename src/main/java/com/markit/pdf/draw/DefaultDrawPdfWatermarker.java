@@ -4,45 +4,243 @@ import com.markit.api.WatermarkAttributes;
 import com.markit.image.ImageConverter;
 import com.markit.image.ImageWatermarker;
 import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
 import org.apache.pdfbox.util.Matrix;
 
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @author Oleg Cheban
  * @since 1.0
  */
-public class DefaultDrawPdfWatermarker implements DrawPdfWatermarker {
+public class DefaultDrawPdfWatermarker implements RasterDrawPdfWatermarker {
     private final static float DEFAULT_DPI = 300f;
+    private final static String IMAGE_FORMAT = "JPEG";
+    private final static float POINTS_PER_INCH = 72f;
+    /**
+     * The largest number of pixels rendered at once, a band of 64 MB in RGB
+     */
+    private final static int MAX_BAND_PIXELS = 1 << 24;
+    /**
+     * The largest number of bands a page is rendered in. Every band renders the whole page clipped to the band,
+     * so the rendering time grows with the number of bands, while the memory shrinks with it
+     */
+    private final static int MAX_BANDS = 8;
+    /**
+     * The lowest DPI a page is rendered at to fit into its byte budget
+     */
+    private final static float MIN_BUDGET_DPI = 72f;
+    private final static int MAX_BUDGET_RENDERS = 3;
+    private final static double BUDGET_DPI_MARGIN = 0.95;
+    private final ImageConverter imageConverter = new ImageConverter();
+    private final BudgetedJpegEncoder jpegEncoder = new BudgetedJpegEncoder();
 
     public DefaultDrawPdfWatermarker() {
     }
 
+    /**
+     * The rendered page goes straight to the painters and is encoded exactly once.
+     * {@link #embed} wraps the encoded data as is, so no pixels are decoded or re-encoded on the writer thread.
+     * <p>
+     * A page whose raster exceeds {@link #MAX_BAND_PIXELS} is rendered in horizontal bands, one at a time,
+     * so the memory needed for a page doesn't grow with the square of the DPI. Each band interprets the whole page
+     * again and only rasterizes its part of it, so a page is rendered in at most {@link #MAX_BANDS} bands, which may
+     * then be larger than {@link #MAX_BAND_PIXELS}.
+     * <p>
+     * A page is rendered with the fewest colors that show both the page and the watermarks: a black and white
+     * raster is compressed with CCITT Group 4, a grayscale one is a grayscale JPEG.
+     * <p>
+     * With a byte budget a JPEG raster gets the highest quality that fits. If even the lowest quality doesn't,
+     * the page is rendered again at a lower DPI, at most {@link #MAX_BUDGET_RENDERS} times. A page rendered in bands is only fitted by quality,
+     * every band getting its share of the budget.
+     */
     @Override
-    public void watermark(PDDocument document, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
-        var imageConverter = new ImageConverter();
-        var page = document.getPage(pageIndex);
-        var pdfRenderer = new PDFRenderer(document);
-        var image = pdfRenderer.renderImageWithDPI(pageIndex, getDPI(attrs));
+    public PageRaster render(PDFRenderer renderer, PDPage page, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
         var imageWatermarker = (ImageWatermarker) ServiceFactory.getInstance().getService(ImageWatermarker.class);
+        float dpi = getDPI(page, attrs);
+        float scale = dpi / POINTS_PER_INCH;
+        var imageType = getImageType(page, attrs);
+        long budget = getPageByteBudget(attrs);
+
+        // the same raster size PDFRenderer#renderImage allocates for the page
+        var cropBox = page.getCropBox();
+        int width = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        int height = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+        if (page.getRotation() == 90 || page.getRotation() == 270) {
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+
+        if ((long) width * height <= MAX_BAND_PIXELS) {
+            var image = renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+
+            // Apply watermark to the rendered image
+            imageWatermarker.watermark(image, attrs);
+            byte[] encoded;
+            if (budget > 0 && imageType != ImageType.BINARY) {
+                var quality = jpegEncoder.fit(image, budget);
+                float budgetDpi = dpi;
+                for (int i = 0; i < MAX_BUDGET_RENDERS && quality.isEmpty() && budgetDpi > MIN_BUDGET_DPI; i++) {
+                    // the size roughly follows the number of pixels, so the DPI drops with the square root of the excess
+                    double excess = (double) jpegEncoder.estimateAtMinQuality(image) / budget;
+                    budgetDpi = Math.max(MIN_BUDGET_DPI, (float) (budgetDpi / Math.sqrt(excess) * BUDGET_DPI_MARGIN));
+                    image = renderer.renderImageWithDPI(pageIndex, budgetDpi, imageType);
+                    imageWatermarker.watermark(image, attrs);
+                    quality = jpegEncoder.fit(image, budget);
+                }
+                encoded = jpegEncoder.encode(image, quality.orElse(BudgetedJpegEncoder.MIN_QUALITY));
+            } else {
+                encoded = encode(image, imageType);
+            }
+            var band = new PageRaster.Band(0, image.getHeight(), encoded);
+            return new PageRaster(image.getWidth(), image.getHeight(), List.of(band), encoding(imageType));
+        }
+
+        int bandHeight = Math.max(Math.max(MAX_BAND_PIXELS / width, 1), (height + MAX_BANDS - 1) / MAX_BANDS);
+        var bands = new ArrayList<PageRaster.Band>();
+        for (int top = 0; top < height; top += bandHeight) {
+            var band = new BufferedImage(width, Math.min(bandHeight, height - top), toBufferedImageType(imageType));
+
+            var pageGraphics = band.createGraphics();
+            pageGraphics.setBackground(Color.WHITE);
+            pageGraphics.clearRect(0, 0, band.getWidth(), band.getHeight());
+            pageGraphics.translate(0, -top);
+            pageGraphics.clipRect(0, top, band.getWidth(), band.getHeight());
+            renderer.renderPageToGraphics(pageIndex, pageGraphics, scale, scale, RenderDestination.EXPORT);
+            pageGraphics.dispose();
+
+            // the watermarks are positioned on the whole page, each band shows its part of them
+            var watermarkGraphics = band.createGraphics();
+            watermarkGraphics.translate(0, -top);
+            imageWatermarker.watermark(watermarkGraphics, width, height, attrs);
+            watermarkGraphics.dispose();
+
+            byte[] encoded = budget > 0 && imageType != ImageType.BINARY
+                    ? encodeWithin(band, budget * band.getHeight() / height)
+                    : encode(band, imageType);
+            bands.add(new PageRaster.Band(top, band.getHeight(), encoded));
+        }
+        return new PageRaster(width, height, bands, encoding(imageType));
+    }
+
+    /**
+     * The page is inspected only when the watermarks themselves can do without colors
+     */
+    private ImageType getImageType(PDPage page, List<WatermarkAttributes> attrs) throws IOException {
+        var color = getWatermarkColor(attrs);
+        if (color != PageColor.COLOR) {
+            var detector = (PageColorDetector) ServiceFactory.getInstance().getService(PageColorDetector.class);
+            color = color.and(detector.detect(page));
+        }
+        switch (color) {
+            case BILEVEL:
+                return ImageType.BINARY;
+            case GRAY:
+                return ImageType.GRAY;
+            default:
+                return ImageType.RGB;
+        }
+    }
+
+    /**
+     * A translucent watermark is blended with the page, so only an opaque black or white text stays black and white
+     */
+    private static PageColor getWatermarkColor(List<WatermarkAttributes> attrs) {
+        var color = PageColor.BILEVEL;
+        for (WatermarkAttributes attr : attrs) {
+            if (attr.getImage().isPresent()) {
+                int type = attr.getImage().get().getType();
+                boolean gray = type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_USHORT_GRAY
+                        || type == BufferedImage.TYPE_BYTE_BINARY;
+                color = color.and(gray ? PageColor.GRAY : PageColor.COLOR);
+            }
+            if (attr.isTextWatermark()) {
+                var textColor = attr.getColor();
+                if (textColor.getRed() != textColor.getGreen() || textColor.getGreen() != textColor.getBlue()) {
+                    return PageColor.COLOR;
+                }
+                boolean blackOrWhite = textColor.getRed() == 0 || textColor.getRed() == 255;
+                color = color.and(blackOrWhite && attr.getOpacity() >= 100 ? PageColor.BILEVEL : PageColor.GRAY);
+            }
+        }
+        return color;
+    }
+
+    private static int toBufferedImageType(ImageType imageType) {
+        switch (imageType) {
+            case BINARY:
+                return BufferedImage.TYPE_BYTE_BINARY;
+            case GRAY:
+                return BufferedImage.TYPE_BYTE_GRAY;
+            default:
+                return BufferedImage.TYPE_INT_RGB;
+        }
+    }
+
+    /**
+     * The smallest byte budget of the watermarks, 0 if none has one
+     */
+    private static long getPageByteBudget(List<WatermarkAttributes> attrs) {
+        return attrs.stream()
+                .mapToLong(WatermarkAttributes::getPageByteBudget)
+                .filter(budget -> budget > 0)
+                .min()
+                .orElse(0);
+    }
+
+    private byte[] encodeWithin(BufferedImage image, long budget) throws IOException {
+        return jpegEncoder.encode(image, jpegEncoder.fit(image, budget).orElse(BudgetedJpegEncoder.MIN_QUALITY));
+    }
 
-        // Apply watermark to the rendered image
-        var watermarkedImageBytes = imageWatermarker.watermark(imageConverter.convertToByteArray(image, "JPEG"), attrs);
+    private static PageRaster.Encoding encoding(ImageType imageType) {
+        return imageType == ImageType.BINARY ? PageRaster.Encoding.CCITT_G4 : PageRaster.Encoding.JPEG;
+    }
 
-        // Create a PDImageXObject from the watermarked image bytes
-        var pdImage = PDImageXObject.createFromByteArray(document, watermarkedImageBytes, "watermarked");
+    private byte[] encode(BufferedImage image, ImageType imageType) throws IOException {
+        if (imageType != ImageType.BINARY) {
+            return imageConverter.convertToByteArray(image, IMAGE_FORMAT);
+        }
+        // the rows of a binary image are packed already, with white as 1, while the encoder takes black as 1
+        var pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        var inverted = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            inverted[i] = (byte) ~pixels[i];
+        }
+        var parameters = new COSDictionary();
+        parameters.setInt(COSName.COLUMNS, image.getWidth());
+        parameters.setInt(COSName.ROWS, image.getHeight());
+        var encoded = new ByteArrayOutputStream();
+        FilterFactory.INSTANCE.getFilter(COSName.CCITTFAX_DECODE)
+                .encode(new ByteArrayInputStream(inverted), encoded, parameters, 0);
+        return encoded.toByteArray();
+    }
 
-        // Replace the original image in the PDF with the watermarked image
+    @Override
+    public void embed(PDDocument document, PDPage page, PageRaster raster) throws IOException {
+        // Replace the original content of the page with the watermarked raster
         replaceImageInPDF(
                 document,
-                pdImage,
+                raster,
                 page,
                 page.getCropBox().getLowerLeftX(),
                 page.getCropBox().getLowerLeftY(),
@@ -51,16 +249,31 @@ public class DefaultDrawPdfWatermarker implements DrawPdfWatermarker {
         );
     }
 
-    private float getDPI(List<WatermarkAttributes> attrs){
-        return attrs.stream()
-                .map(WatermarkAttributes::getDpi)
-                .min(Comparator.naturalOrder())
-                .orElse(DEFAULT_DPI);
+    /**
+     * The lowest DPI of the watermarks. A watermark with an adaptive DPI asks for the resolution of the image
+     * that dominates the page, the page content is inspected only for such watermarks and only once.
+     */
+    private float getDPI(PDPage page, List<WatermarkAttributes> attrs) throws IOException {
+        Optional<Float> imageDpi = null;
+        float dpi = Float.MAX_VALUE;
+        for (WatermarkAttributes attr : attrs) {
+            var adaptiveDpi = attr.getAdaptiveDpi();
+            if (adaptiveDpi == null) {
+                dpi = Math.min(dpi, attr.getDpi());
+                continue;
+            }
+            if (imageDpi == null) {
+                var detector = (ImageResolutionDetector) ServiceFactory.getInstance().getService(ImageResolutionDetector.class);
+                imageDpi = detector.detect(page);
+            }
+            dpi = Math.min(dpi, adaptiveDpi.resolve(imageDpi.orElse(null), attr.getDpi()));
+        }
+        return attrs.isEmpty() ? DEFAULT_DPI : dpi;
     }
 
     private void replaceImageInPDF(
             PDDocument document,
-            PDImageXObject watermarkedImage,
+            PageRaster raster,
             PDPage page,
             float x,
             float y,
@@ -68,8 +281,29 @@ public class DefaultDrawPdfWatermarker implements DrawPdfWatermarker {
             float height) throws IOException {
         try (var contentStream = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.OVERWRITE, false)) {
             adjustPageRotation(contentStream, page);
-            contentStream.drawImage(watermarkedImage, x, y, width, height);
+            for (var band : raster.getBands()) {
+                // Create a PDImageXObject from the watermarked band bytes
+                var pdImage = createImage(document, raster, band);
+                float bandBottom = raster.getHeight() - band.getTop() - band.getHeight();
+                contentStream.drawImage(pdImage,
+                        x, y + height * bandBottom / raster.getHeight(),
+                        width, height * band.getHeight() / raster.getHeight());
+            }
+        }
+    }
+
+    private PDImageXObject createImage(PDDocument document, PageRaster raster, PageRaster.Band band) throws IOException {
+        if (raster.getEncoding() == PageRaster.Encoding.JPEG) {
+            return JPEGFactory.createFromByteArray(document, band.getImage());
         }
+        var image = new PDImageXObject(document, new ByteArrayInputStream(band.getImage()),
+                COSName.CCITTFAX_DECODE, raster.getWidth(), band.getHeight(), 1, PDDeviceGray.INSTANCE);
+        var parameters = new COSDictionary();
+        parameters.setInt(COSName.K, -1);
+        parameters.setInt(COSName.COLUMNS, raster.getWidth());
+        parameters.setInt(COSName.ROWS, band.getHeight());
+        image.getCOSObject().setItem(COSName.DECODE_PARMS, parameters);
+        return image;
     }
 
     /**
@@ -0,0 +1,85 @@
+package com.markit.pdf.draw;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Walks the content of the page keeping track of the transformation matrix only, so no image is decoded
+ * and no text is laid out. The dominant image is the one displayed over the largest area, provided it covers
+ * at least half of the page. Its resolution is the number of its pixels per inch of the page,
+ * along the axis where it is the highest.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DefaultImageResolutionDetector implements ImageResolutionDetector {
+    private final static float POINTS_PER_INCH = 72f;
+    private final static float MIN_PAGE_COVERAGE = 0.5f;
+
+    @Override
+    public Optional<Float> detect(PDPage page) throws IOException {
+        var cropBox = page.getCropBox();
+        float pageArea = cropBox.getWidth() * cropBox.getHeight();
+        if (page.getResources() == null || pageArea <= 0) {
+            return Optional.empty();
+        }
+        var finder = new DominantImageFinder();
+        finder.processPage(page);
+        if (finder.area < pageArea * MIN_PAGE_COVERAGE) {
+            return Optional.empty();
+        }
+        return Optional.of(finder.dpi);
+    }
+
+    @Override
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    private static final class DominantImageFinder extends PDFStreamEngine {
+        private float area;
+        private float dpi;
+
+        private DominantImageFinder() {
+            addOperator(new Concatenate());
+            addOperator(new DrawObject());
+            addOperator(new SetMatrix());
+            addOperator(new Save());
+            addOperator(new Restore());
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if (OperatorName.DRAW_OBJECT.equals(operator.getName())
+                    && !operands.isEmpty() && operands.get(0) instanceof COSName
+                    && getResources().isImageXObject((COSName) operands.get(0))) {
+                var image = (PDImageXObject) getResources().getXObject((COSName) operands.get(0));
+                // the image is drawn into the unit square, the matrix scales it to its size on the page
+                var ctm = getGraphicsState().getCurrentTransformationMatrix();
+                float width = ctm.getScalingFactorX();
+                float height = ctm.getScalingFactorY();
+                if (width > 0 && height > 0 && width * height > area) {
+                    area = width * height;
+                    dpi = Math.max(image.getWidth() / width, image.getHeight() / height) * POINTS_PER_INCH;
+                }
+                return;
+            }
+            // forms are walked by DrawObject, images are never decoded
+            super.processOperator(operator, operands);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.markit.pdf.draw;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColorN;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingColorSpace;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceCMYKColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceGrayColor;
+import org.apache.pdfbox.contentstream.operator.color.SetNonStrokingDeviceRGBColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColorN;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingColorSpace;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceCMYKColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceGrayColor;
+import org.apache.pdfbox.contentstream.operator.color.SetStrokingDeviceRGBColor;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Walks the content of the page and its annotations, keeping track of the colors only: no image is decoded
+ * and no text is laid out. Every painting operator is checked against the current color, every image
+ * against its color space and depth. Anything the walk can't tell apart, such as patterns, spot colors
+ * and images without a color space, counts as color.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DefaultPageColorDetector implements PageColorDetector {
+
+    @Override
+    public PageColor detect(PDPage page) throws IOException {
+        var finder = new ColorFinder();
+        finder.processPage(page);
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            if (finder.color == PageColor.COLOR) {
+                break;
+            }
+            finder.showAnnotation(annotation);
+        }
+        return finder.color;
+    }
+
+    @Override
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    private static final class ColorFinder extends PDFStreamEngine {
+        /** The largest difference between the RGB channels of a gray, and from black or white */
+        private static final int TOLERANCE = 4;
+        private static final Set<String> FILL_OPERATORS = Set.of(
+                OperatorName.FILL_NON_ZERO, OperatorName.LEGACY_FILL_NON_ZERO, OperatorName.FILL_EVEN_ODD,
+                OperatorName.SHOW_TEXT, OperatorName.SHOW_TEXT_ADJUSTED,
+                OperatorName.SHOW_TEXT_LINE, OperatorName.SHOW_TEXT_LINE_AND_SPACE);
+        private static final Set<String> STROKE_OPERATORS = Set.of(
+                OperatorName.STROKE_PATH, OperatorName.CLOSE_AND_STROKE);
+        private static final Set<String> FILL_AND_STROKE_OPERATORS = Set.of(
+                OperatorName.FILL_NON_ZERO_AND_STROKE, OperatorName.FILL_EVEN_ODD_AND_STROKE,
+                OperatorName.CLOSE_FILL_NON_ZERO_AND_STROKE, OperatorName.CLOSE_FILL_EVEN_ODD_AND_STROKE);
+
+        private PageColor color = PageColor.BILEVEL;
+
+        private ColorFinder() {
+            addOperator(new Concatenate());
+            addOperator(new DrawObject());
+            addOperator(new SetGraphicsStateParameters());
+            addOperator(new SetMatrix());
+            addOperator(new Save());
+            addOperator(new Restore());
+            addOperator(new SetStrokingColorSpace());
+            addOperator(new SetStrokingColor());
+            addOperator(new SetStrokingColorN());
+            addOperator(new SetStrokingDeviceGrayColor());
+            addOperator(new SetStrokingDeviceRGBColor());
+            addOperator(new SetStrokingDeviceCMYKColor());
+            addOperator(new SetNonStrokingColorSpace());
+            addOperator(new SetNonStrokingColor());
+            addOperator(new SetNonStrokingColorN());
+            addOperator(new SetNonStrokingDeviceGrayColor());
+            addOperator(new SetNonStrokingDeviceRGBColor());
+            addOperator(new SetNonStrokingDeviceCMYKColor());
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if (color == PageColor.COLOR) {
+                return;
+            }
+            var name = operator.getName();
+            if (FILL_OPERATORS.contains(name)) {
+                paint(getGraphicsState().getNonStrokingColor());
+            } else if (STROKE_OPERATORS.contains(name)) {
+                paint(getGraphicsState().getStrokingColor());
+            } else if (FILL_AND_STROKE_OPERATORS.contains(name)) {
+                paint(getGraphicsState().getNonStrokingColor());
+                paint(getGraphicsState().getStrokingColor());
+            } else if (OperatorName.SHADING_FILL.equals(name)) {
+                var shading = operands.isEmpty() || !(operands.get(0) instanceof COSName)
+                        ? null : getResources().getShading((COSName) operands.get(0));
+                add(shading != null && isGray(shading.getColorSpace()) ? PageColor.GRAY : PageColor.COLOR);
+            } else if (OperatorName.BEGIN_INLINE_IMAGE.equals(name)) {
+                inlineImage(operator.getImageParameters());
+            } else if (OperatorName.DRAW_OBJECT.equals(name)
+                    && !operands.isEmpty() && operands.get(0) instanceof COSName
+                    && getResources().isImageXObject((COSName) operands.get(0))) {
+                image((PDImageXObject) getResources().getXObject((COSName) operands.get(0)));
+            } else {
+                // forms are walked by DrawObject
+                super.processOperator(operator, operands);
+            }
+        }
+
+        private void image(PDImageXObject image) throws IOException {
+            if (image.isStencil()) {
+                paint(getGraphicsState().getNonStrokingColor());
+                return;
+            }
+            // the color space of a JPEG 2000 image may only be known once the image is decoded
+            var colorSpace = image.getCOSObject().getDictionaryObject(COSName.COLORSPACE, COSName.CS) == null
+                    ? null : image.getColorSpace();
+            if (colorSpace == null || !isGray(colorSpace)) {
+                add(PageColor.COLOR);
+            } else {
+                add(image.getBitsPerComponent() == 1 ? PageColor.BILEVEL : PageColor.GRAY);
+            }
+        }
+
+        private void inlineImage(COSDictionary parameters) throws IOException {
+            if (parameters == null) {
+                add(PageColor.COLOR);
+                return;
+            }
+            var imageMask = parameters.getDictionaryObject(COSName.IM, COSName.IMAGE_MASK);
+            if (imageMask instanceof COSBoolean && ((COSBoolean) imageMask).getValue()) {
+                paint(getGraphicsState().getNonStrokingColor());
+                return;
+            }
+            var colorSpace = parameters.getDictionaryObject(COSName.CS, COSName.COLORSPACE);
+            if (!COSName.G.equals(colorSpace) && !COSName.DEVICEGRAY.equals(colorSpace)) {
+                add(PageColor.COLOR);
+                return;
+            }
+            int bitsPerComponent = parameters.getInt(COSName.BPC, COSName.BITS_PER_COMPONENT, 8);
+            add(bitsPerComponent == 1 ? PageColor.BILEVEL : PageColor.GRAY);
+        }
+
+        private void paint(PDColor paint) {
+            if (paint.getColorSpace() == null || paint.getColorSpace() instanceof PDPattern) {
+                add(PageColor.COLOR);
+                return;
+            }
+            int rgb;
+            try {
+                rgb = paint.toRGB();
+            } catch (IOException e) {
+                add(PageColor.COLOR);
+                return;
+            }
+            int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+            int min = Math.min(r, Math.min(g, b));
+            int max = Math.max(r, Math.max(g, b));
+            if (max - min > TOLERANCE) {
+                add(PageColor.COLOR);
+            } else if (max > TOLERANCE && min < 255 - TOLERANCE) {
+                add(PageColor.GRAY);
+            }
+        }
+
+        private static boolean isGray(PDColorSpace colorSpace) {
+            return colorSpace instanceof PDDeviceGray || colorSpace instanceof PDCalGray
+                    || (colorSpace instanceof PDICCBased && colorSpace.getNumberOfComponents() == 1);
+        }
+
+        private void add(PageColor pageColor) {
+            color = color.and(pageColor);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.markit.pdf.draw;
+
+import com.markit.api.formats.pdf.PdfMemoryPolicy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A pool of private, read-only copies of a document used to render pages on worker threads.
+ * <p>
+ * PDFBox is not thread-safe, so worker threads must never touch the document being watermarked.
+ * The pool takes a snapshot of the document once, into a temporary file so that the document isn't held
+ * in memory twice, and lazily opens one copy (with its own renderer)
+ * per concurrently running worker. A renderer is borrowed for the duration of a single page and
+ * then returned, so the number of copies never exceeds the number of threads actually rendering.
+ * </p>
+ * <p>
+ * With a memory policy the snapshot is kept in the scratch directory of the policy and every copy is loaded
+ * with the limits of the policy.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DocumentViewPool implements Closeable {
+
+    private final Path snapshotFile;
+    private final PdfMemoryPolicy memoryPolicy;
+    private final Queue<View> idleViews = new ConcurrentLinkedQueue<>();
+    private final Queue<PDDocument> views = new ConcurrentLinkedQueue<>();
+
+    private DocumentViewPool(Path snapshotFile, PdfMemoryPolicy memoryPolicy) {
+        this.snapshotFile = snapshotFile;
+        this.memoryPolicy = memoryPolicy;
+    }
+
+    /**
+     * Takes a snapshot of the document. Must be called on the thread that owns the document.
+     *
+     * @param memoryPolicy the limits for the snapshot and the copies, may be null
+     */
+    public static DocumentViewPool of(PDDocument document, PdfMemoryPolicy memoryPolicy) throws IOException {
+        var file = memoryPolicy == null
+                ? Files.createTempFile("watermarkit-snapshot", ".pdf")
+                : memoryPolicy.createTempFile(".pdf");
+        try (var output = new BufferedOutputStream(Files.newOutputStream(file))) {
+            document.save(output);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new DocumentViewPool(file, memoryPolicy);
+    }
+
+    /**
+     * Returns a copy of the document that is not used by any other thread, opening a new one if necessary
+     */
+    public View borrow() throws IOException {
+        var idle = idleViews.poll();
+        if (idle != null) {
+            return idle;
+        }
+        var view = load();
+        views.add(view);
+        return new View(view, new PDFRenderer(view));
+    }
+
+    /**
+     * Opens a new copy of the document that belongs to the caller. The copy may be modified, it is not tracked
+     * by the pool and must be closed by the caller before the pool is closed. Every copy is loaded
+     * from the same snapshot, so an object has the same key in all of them.
+     */
+    public PDDocument copy() throws IOException {
+        return load();
+    }
+
+    private PDDocument load() throws IOException {
+        return memoryPolicy != null
+                ? PDDocument.load(snapshotFile.toFile(), memoryPolicy.toMemoryUsageSetting())
+                : PDDocument.load(snapshotFile.toFile());
+    }
+
+    /**
+     * Returns a copy obtained by {@link #borrow()} to the pool
+     */
+    public void release(View view) {
+        idleViews.add(view);
+    }
+
+    @Override
+    public void close() throws IOException {
+        idleViews.clear();
+        IOException failure = null;
+        for (PDDocument view : views) {
+            try {
+                view.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        views.clear();
+        try {
+            Files.deleteIfExists(snapshotFile);
+        } catch (IOException e) {
+            failure = e;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A read-only copy of the document together with its renderer
+     */
+    public static final class View {
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+        private List<PDPage> pages;
+
+        private View(PDDocument document, PDFRenderer renderer) {
+            this.document = document;
+            this.renderer = renderer;
+        }
+
+        /**
+         * Returns a page of the copy. The pages are indexed on the first call,
+         * so that a lookup doesn't walk the page tree.
+         */
+        public PDPage getPage(int pageIndex) {
+            if (pages == null) {
+                pages = new ArrayList<>(document.getNumberOfPages());
+                document.getPages().forEach(pages::add);
+            }
+            return pages.get(pageIndex);
+        }
+
+        public PDDocument getDocument() {
+            return document;
+        }
+
+        public PDFRenderer getRenderer() {
+            return renderer;
+        }
+    }
+}
@@ -10,6 +10,10 @@ import java.util.List;
 
 /**
  * An interface for adding watermarks to a PDF page. ({@link WatermarkingMethod#DRAW method}
+ * <p>
+ * The pages of a watermarker are watermarked one after another on the document itself.
+ * A {@link RasterDrawPdfWatermarker} has its pages rendered in parallel instead.
+ * </p>
  *
  * @author Oleg Cheban
  * @since 1.0
@@ -0,0 +1,25 @@
+package com.markit.pdf.draw;
+
+import com.markit.servicelocator.Prioritizable;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Finds the resolution of the image that dominates a page, such as the image of a scanned page,
+ * for rendering the page at that resolution
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface ImageResolutionDetector extends Prioritizable {
+
+    /**
+     * Returns the resolution the dominant image of the page is displayed at
+     *
+     * @param page the page to inspect
+     * @return the resolution in DPI, empty if no image dominates the page (e.g. a vector page)
+     */
+    Optional<Float> detect(PDPage page) throws IOException;
+}
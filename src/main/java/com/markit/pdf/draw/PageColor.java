@@ -0,0 +1,23 @@
+package com.markit.pdf.draw;
+
+/**
+ * The colors a page or a watermark needs, from the fewest to the most
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public enum PageColor {
+    /** Black and white only */
+    BILEVEL,
+    /** Shades of gray */
+    GRAY,
+    /** Any color */
+    COLOR;
+
+    /**
+     * The colors needed to show both this and the other
+     */
+    public PageColor and(PageColor other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+}
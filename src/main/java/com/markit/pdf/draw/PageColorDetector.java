@@ -0,0 +1,23 @@
+package com.markit.pdf.draw;
+
+import com.markit.servicelocator.Prioritizable;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+
+/**
+ * Finds out which colors a page uses, so that a page without colors is rendered
+ * to a grayscale or a black and white raster
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface PageColorDetector extends Prioritizable {
+
+    /**
+     * Returns the colors the page needs. When in doubt, an implementation must answer {@link PageColor#COLOR}.
+     *
+     * @param page the page to inspect
+     */
+    PageColor detect(PDPage page) throws IOException;
+}
@@ -0,0 +1,185 @@
+package com.markit.pdf.draw;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkFingerprint;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SHA-256 hash of everything the DRAW raster of a page depends on: the page dictionary with its content,
+ * resources and annotations, the inherited page attributes and the watermarks.
+ * <p>
+ * The objects are hashed by value, so identical pages of different documents have the same fingerprint.
+ * Streams are hashed as stored, without decoding them, and the digest of the data of a stream is kept
+ * for the other pages that share it, such as the fonts and images of the document. The links back to the page tree (/Parent, /P)
+ * are left out, and an object reached twice is hashed as a reference to its first occurrence.
+ * The watermarks are hashed as in {@link WatermarkFingerprint}.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+final class PageFingerprint {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final MessageDigest digest;
+    private final Map<COSBase, Integer> visited = new IdentityHashMap<>();
+    private final Map<COSStream, byte[]> streamDigests;
+
+    private PageFingerprint(Map<COSStream, byte[]> streamDigests) {
+        this.digest = WatermarkFingerprint.sha256();
+        this.streamDigests = streamDigests;
+    }
+
+    /**
+     * @param imageDigests the digests of the watermark images computed so far, shared between pages
+     * @param streamDigests the digests of the data of the streams computed so far, shared between pages.
+     *                      The streams are compared by identity.
+     * @return the hexadecimal fingerprint
+     */
+    static String of(PDPage page, List<WatermarkAttributes> attrs, Map<BufferedImage, byte[]> imageDigests,
+                     Map<COSStream, byte[]> streamDigests) throws IOException {
+        var fingerprint = new PageFingerprint(streamDigests);
+        fingerprint.hash(page.getCOSObject());
+        fingerprint.hash(page.getMediaBox());
+        fingerprint.hash(page.getCropBox());
+        fingerprint.hashInt(page.getRotation());
+        fingerprint.hash(page.getResources() == null ? null : page.getResources().getCOSObject());
+        for (WatermarkAttributes attr : attrs) {
+            WatermarkFingerprint.hash(fingerprint.digest, attr, imageDigests);
+        }
+        var hex = new StringBuilder();
+        for (byte b : fingerprint.digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void hash(PDRectangle rectangle) {
+        hashFloat(rectangle.getLowerLeftX());
+        hashFloat(rectangle.getLowerLeftY());
+        hashFloat(rectangle.getUpperRightX());
+        hashFloat(rectangle.getUpperRightY());
+    }
+
+    private void hash(COSBase base) throws IOException {
+        if (base instanceof COSObject) {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null) {
+            digest.update((byte) 'n');
+            return;
+        }
+        var index = visited.get(base);
+        if (index != null) {
+            digest.update((byte) 'r');
+            hashInt(index);
+            return;
+        }
+        if (base instanceof COSDictionary) {
+            visited.put(base, visited.size());
+            hashDictionary((COSDictionary) base);
+            if (base instanceof COSStream) {
+                hashData((COSStream) base);
+            }
+        } else if (base instanceof COSArray) {
+            visited.put(base, visited.size());
+            var array = (COSArray) base;
+            digest.update((byte) 'a');
+            hashInt(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                hash(array.get(i));
+            }
+        } else if (base instanceof COSName) {
+            digest.update((byte) '/');
+            hashString(((COSName) base).getName());
+        } else if (base instanceof COSString) {
+            digest.update((byte) 's');
+            var bytes = ((COSString) base).getBytes();
+            hashInt(bytes.length);
+            digest.update(bytes);
+        } else if (base instanceof COSInteger) {
+            digest.update((byte) 'i');
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(((COSInteger) base).longValue()).array());
+        } else if (base instanceof COSFloat) {
+            digest.update((byte) 'f');
+            hashFloat(((COSFloat) base).floatValue());
+        } else if (base instanceof COSBoolean) {
+            digest.update((byte) (((COSBoolean) base).getValue() ? 't' : 'b'));
+        } else {
+            digest.update((byte) 'n');
+        }
+    }
+
+    private void hashDictionary(COSDictionary dictionary) throws IOException {
+        digest.update((byte) 'd');
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            var key = entry.getKey();
+            if (COSName.PARENT.equals(key) || COSName.P.equals(key) || COSName.LENGTH.equals(key)) {
+                continue;
+            }
+            hash(key);
+            hash(entry.getValue());
+        }
+        digest.update((byte) 'e');
+    }
+
+    /**
+     * The data is hashed without holding the lock of the digests, two pages hashing a stream at the same time
+     * both compute its digest
+     */
+    private void hashData(COSStream stream) throws IOException {
+        digest.update((byte) 'x');
+        byte[] dataDigest;
+        synchronized (streamDigests) {
+            dataDigest = streamDigests.get(stream);
+        }
+        if (dataDigest == null) {
+            var streamDigest = WatermarkFingerprint.sha256();
+            try (var input = stream.createRawInputStream()) {
+                var buffer = new byte[BUFFER_SIZE];
+                for (int read; (read = input.read(buffer)) != -1; ) {
+                    streamDigest.update(buffer, 0, read);
+                }
+            }
+            dataDigest = streamDigest.digest();
+            synchronized (streamDigests) {
+                streamDigests.put(stream, dataDigest);
+            }
+        }
+        digest.update(dataDigest);
+    }
+
+    private void hashString(String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        hashInt(bytes.length);
+        digest.update(bytes);
+    }
+
+    private void hashFloat(float value) {
+        hashInt(Float.floatToIntBits(value));
+    }
+
+    private void hashInt(int value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+    }
+}
@@ -0,0 +1,35 @@
+package com.markit.pdf.draw
+
+/**
+ * The watermarked raster of a page, encoded as horizontal bands from top to bottom.
+ * A page that fits into memory at once consists of a single band.
+ *
+ * @param width the width of the raster in pixels
+ * @param height the height of the raster in pixels
+ * @param bands the bands covering the raster
+ * @param encoding how the images of the bands are encoded
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+class PageRaster @JvmOverloads constructor(
+    val width: Int,
+    val height: Int,
+    val bands: List<Band>,
+    val encoding: Encoding = Encoding.JPEG
+) {
+
+    /**
+     * @param top the first pixel row of the band
+     * @param height the number of pixel rows in the band
+     * @param image the encoded image of the band
+     */
+    class Band(val top: Int, val height: Int, val image: ByteArray)
+
+    enum class Encoding {
+        /** A JPEG file, in color or in grayscale */
+        JPEG,
+        /** Black and white data compressed with CCITT Group 4, without a file header */
+        CCITT_G4
+    }
+}
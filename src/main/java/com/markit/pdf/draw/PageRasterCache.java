@@ -0,0 +1,267 @@
+package com.markit.pdf.draw;
+
+import com.markit.api.WatermarkAttributes;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded LRU cache of watermarked DRAW rasters, shared between documents.
+ * <p>
+ * Documents often repeat the same pages: cover pages, terms and conditions, blank separators.
+ * A page is looked up by a hash of its content, its resources and annotations, and its watermarks
+ * (DPI included), so a repeated page watermarked the same way is not rendered again.
+ * The rasters are kept encoded. Those evicted from memory move to the disk directory, if there is one,
+ * and are dropped from there in turn.
+ * </p>
+ * <p>
+ * The cache is thread-safe. Two workers drawing the same page at the same time may both render it.
+ * The rasters on disk are not reused by another cache instance. The streams of a document are hashed once,
+ * they are expected not to change while the document is watermarked.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class PageRasterCache {
+    private static final Log logger = LogFactory.getLog(PageRasterCache.class);
+    private static final String SUFFIX = ".raster";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, PageRaster> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<BufferedImage, byte[]> imageDigests = new WeakHashMap<>();
+    // keyed by the streams of the documents, so the digests go with the documents
+    private final Map<COSStream, byte[]> streamDigests = new WeakHashMap<>();
+    private final Set<String> spilling = new HashSet<>();
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxMemoryBytes the number of bytes the rasters may take in memory
+     */
+    public PageRasterCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * @param maxMemoryBytes the number of bytes the rasters may take in memory
+     * @param diskDirectory the directory for the rasters evicted from memory, null for no disk tier
+     * @param maxDiskBytes the number of bytes the rasters may take on disk
+     */
+    public PageRasterCache(long maxMemoryBytes, File diskDirectory, long maxDiskBytes) {
+        if (maxMemoryBytes < 0 || maxDiskBytes < 0) {
+            throw new IllegalArgumentException("The cache sizes must not be negative");
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDirectory = diskDirectory == null ? null : diskDirectory.toPath();
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Returns the cached raster of the page, or renders it and caches the result
+     *
+     * @param attrs the watermarks the raster is drawn with
+     */
+    public PageRaster computeIfAbsent(PDPage page, List<WatermarkAttributes> attrs, Renderer renderer) throws IOException {
+        var key = PageFingerprint.of(page, attrs, imageDigests, streamDigests);
+        var raster = get(key);
+        if (raster != null) {
+            hits.incrementAndGet();
+            return raster;
+        }
+        misses.incrementAndGet();
+        raster = renderer.render();
+        put(key, raster);
+        return raster;
+    }
+
+    /**
+     * @return the number of pages served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of pages rendered because they were not in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private PageRaster get(String key) {
+        synchronized (this) {
+            var raster = memory.get(key);
+            if (raster != null || disk.get(key) == null) {
+                return raster;
+            }
+        }
+        try {
+            var raster = read(file(key));
+            // back to memory, the copy on disk stays until it is evicted from there
+            put(key, raster);
+            return raster;
+        } catch (IOException e) {
+            // another thread may have evicted the file meanwhile, the page is simply rendered again
+            logger.debug("Failed to read a cached raster", e);
+            return null;
+        }
+    }
+
+    private void put(String key, PageRaster raster) {
+        var size = size(raster);
+        List<Map.Entry<String, PageRaster>> spilled = new ArrayList<>();
+        synchronized (this) {
+            if (size <= maxMemoryBytes && !memory.containsKey(key)) {
+                memory.put(key, raster);
+                memoryBytes += size;
+            } else if (!memory.containsKey(key)) {
+                spilled.add(Map.entry(key, raster));
+            }
+            for (Iterator<Map.Entry<String, PageRaster>> it = memory.entrySet().iterator(); memoryBytes > maxMemoryBytes; ) {
+                var eldest = it.next();
+                memoryBytes -= size(eldest.getValue());
+                spilled.add(Map.entry(eldest.getKey(), eldest.getValue()));
+                it.remove();
+            }
+        }
+        if (diskDirectory != null) {
+            spilled.forEach(entry -> spill(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * The key is reserved while its raster is written, so a raster is written once. It is written to a temporary
+     * file and moved into place, a reader never sees a partly written raster.
+     */
+    private void spill(String key, PageRaster raster) {
+        var size = size(raster);
+        if (size > maxDiskBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (disk.containsKey(key) || !spilling.add(key)) {
+                return;
+            }
+        }
+        Path temporary = null;
+        try {
+            Files.createDirectories(diskDirectory);
+            temporary = Files.createTempFile(diskDirectory, key, TEMPORARY_SUFFIX);
+            write(temporary, raster);
+            Files.move(temporary, file(key), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to move a cached raster to disk", e);
+            delete(temporary);
+            synchronized (this) {
+                spilling.remove(key);
+            }
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            spilling.remove(key);
+            if (disk.put(key, size) == null) {
+                diskBytes += size;
+            }
+            for (Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator(); diskBytes > maxDiskBytes; ) {
+                var eldest = it.next();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String evictedKey : evicted) {
+            delete(file(evictedKey));
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete a cached raster", e);
+        }
+    }
+
+    private Path file(String key) {
+        return diskDirectory.resolve(key + SUFFIX);
+    }
+
+    private static long size(PageRaster raster) {
+        return raster.getBands().stream().mapToLong(band -> band.getImage().length).sum();
+    }
+
+    private static void write(Path file, PageRaster raster) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(raster.getWidth());
+            output.writeInt(raster.getHeight());
+            output.writeUTF(raster.getEncoding().name());
+            output.writeInt(raster.getBands().size());
+            for (PageRaster.Band band : raster.getBands()) {
+                output.writeInt(band.getTop());
+                output.writeInt(band.getHeight());
+                output.writeInt(band.getImage().length);
+                output.write(band.getImage());
+            }
+        }
+    }
+
+    private static PageRaster read(Path file) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int width = input.readInt();
+            int height = input.readInt();
+            var encoding = PageRaster.Encoding.valueOf(input.readUTF());
+            int bandCount = input.readInt();
+            List<PageRaster.Band> bands = new ArrayList<>(bandCount);
+            for (int i = 0; i < bandCount; i++) {
+                int top = input.readInt();
+                int bandHeight = input.readInt();
+                var image = new byte[input.readInt()];
+                input.readFully(image);
+                bands.add(new PageRaster.Band(top, bandHeight, image));
+            }
+            return new PageRaster(width, height, bands, encoding);
+        }
+    }
+
+    /**
+     * Renders the raster of a page that is not in the cache
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        PageRaster render() throws IOException;
+    }
+}
@@ -0,0 +1,47 @@
+package com.markit.pdf.draw;
+
+import com.markit.api.WatermarkAttributes;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link DrawPdfWatermarker} that splits watermarking into two phases so that pages can be processed in parallel:
+ * {@link #render} rasterizes a page and draws the watermarks on a worker thread, and
+ * {@link #embed} writes the result back into the document on a single writer thread.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface RasterDrawPdfWatermarker extends DrawPdfWatermarker {
+
+    @Override
+    default void watermark(PDDocument document, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
+        var page = document.getPage(pageIndex);
+        embed(document, page, render(new PDFRenderer(document), page, pageIndex, attrs));
+    }
+
+    /**
+     * Renders a page to an image and draws the watermarks on it.
+     * The renderer must not be shared with other threads.
+     *
+     * @param renderer The renderer of the document (or of a copy of it) that contains the page.
+     * @param page The page of the rendered document.
+     * @param pageIndex The index of the page to be watermarked (zero-based).
+     * @param attrs The attributes of watermark
+     * @return The encoded watermarked raster of the page.
+     */
+    PageRaster render(PDFRenderer renderer, PDPage page, int pageIndex, List<WatermarkAttributes> attrs) throws IOException;
+
+    /**
+     * Replaces all layers of a page with the watermarked raster produced by {@link #render}.
+     *
+     * @param document The PDF document to which the watermark will be applied.
+     * @param page The page of the document to be watermarked.
+     * @param raster The encoded watermarked raster of the page.
+     */
+    void embed(PDDocument document, PDPage page, PageRaster raster) throws IOException;
+}
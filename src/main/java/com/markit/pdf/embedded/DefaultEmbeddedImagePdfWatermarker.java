@@ -0,0 +1,92 @@
+package com.markit.pdf.embedded;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.image.ImageWatermarker;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Watermarks the image XObjects referenced by the page resources, e.g. the page images of a scanned document.
+ * <p>
+ * Each image is watermarked in its own pixel space and re-encoded the way it was stored:
+ * JPEG images stay JPEG, everything else is stored losslessly. The soft mask of the image is kept.
+ * Stencil masks are skipped, as they have no colors of their own.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DefaultEmbeddedImagePdfWatermarker implements EmbeddedImagePdfWatermarker {
+
+    @Override
+    public void watermark(PDDocument document, PDPage page, List<WatermarkAttributes> attrs, EmbeddedImagePool images) throws IOException {
+        var resources = page.getResources();
+        if (resources == null) {
+            return;
+        }
+        List<COSName> names = new ArrayList<>();
+        resources.getXObjectNames().forEach(names::add);
+        for (COSName name : names) {
+            var xObject = resources.getXObject(name);
+            if (!(xObject instanceof PDImageXObject)) {
+                continue;
+            }
+            var image = (PDImageXObject) xObject;
+            if (image.isStencil() || images.isWatermarked(image)) {
+                continue;
+            }
+            resources.put(name, images.watermarked(image, attrs, () -> watermark(document, image, attrs)));
+        }
+    }
+
+    private PDImageXObject watermark(PDDocument document, PDImageXObject source, List<WatermarkAttributes> attrs) throws IOException {
+        var imageWatermarker = (ImageWatermarker) ServiceFactory.getInstance().getService(ImageWatermarker.class);
+        var image = imageWatermarker.watermark(toRgb(source.getImage()), attrs);
+
+        var watermarked = isLossy(source)
+                ? JPEGFactory.createFromImage(document, image)
+                : LosslessFactory.createFromImage(document, image);
+        var softMask = source.getCOSObject().getItem(COSName.SMASK);
+        if (softMask != null) {
+            watermarked.getCOSObject().setItem(COSName.SMASK, softMask);
+        }
+        if (source.getCOSObject().getDictionaryObject(COSName.MASK) instanceof COSStream) {
+            watermarked.getCOSObject().setItem(COSName.MASK, source.getCOSObject().getItem(COSName.MASK));
+        }
+        return watermarked;
+    }
+
+    private boolean isLossy(PDImageXObject image) {
+        return "jpg".equals(image.getSuffix()) || "jpx".equals(image.getSuffix());
+    }
+
+    /**
+     * Grayscale, indexed and bilevel images can't hold the colors of a watermark
+     */
+    private BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        var rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        var g2d = rgb.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return rgb;
+    }
+
+    @Override
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+}
@@ -0,0 +1,29 @@
+package com.markit.pdf.embedded;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkingMethod;
+import com.markit.servicelocator.Prioritizable;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The interface for applying watermarks to the images of a PDF page. ({@link WatermarkingMethod#EMBEDDED_IMAGES method})
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface EmbeddedImagePdfWatermarker extends Prioritizable {
+    /**
+     * Watermarks the image XObjects of a specific page of a PDF document at their native resolution.
+     * The text and vector content of the page is left untouched.
+     *
+     * @param document The PDF document to which the watermark will be applied.
+     * @param page The page of the document to be watermarked.
+     * @param attrs The attributes of watermark
+     * @param images The watermarked images shared by all pages of the document
+     */
+    void watermark(PDDocument document, PDPage page, List<WatermarkAttributes> attrs, EmbeddedImagePool images) throws IOException;
+}
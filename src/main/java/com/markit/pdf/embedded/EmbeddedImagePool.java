@@ -0,0 +1,94 @@
+package com.markit.pdf.embedded;
+
+import com.markit.api.WatermarkAttributes;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The watermarked copies of the images of a single document.
+ * <p>
+ * An image shared by several pages is watermarked once for each distinct set of watermarks and the copy
+ * is referenced from all of them. The copies are remembered as well, so an image is never watermarked twice
+ * when pages share their resources. A pool belongs to exactly one document and must not outlive it.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class EmbeddedImagePool {
+
+    private final Map<COSStream, Map<AttrsKey, PDImageXObject>> watermarked = new IdentityHashMap<>();
+    private final Set<COSStream> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Returns the watermarked copy of the image, watermarking it on the first request
+     */
+    public PDImageXObject watermarked(PDImageXObject image, List<WatermarkAttributes> attrs,
+                                      ImageProcessor processor) throws IOException {
+        var copiesOfImage = watermarked.computeIfAbsent(image.getCOSObject(), s -> new HashMap<>());
+        var key = new AttrsKey(attrs);
+        var copy = copiesOfImage.get(key);
+        if (copy == null) {
+            copy = processor.process();
+            copiesOfImage.put(key, copy);
+            copies.add(copy.getCOSObject());
+        }
+        return copy;
+    }
+
+    /**
+     * Whether the image is a watermarked copy made by this pool
+     */
+    public boolean isWatermarked(PDImageXObject image) {
+        return copies.contains(image.getCOSObject());
+    }
+
+    /**
+     * Creates the watermarked copy of an image
+     */
+    @FunctionalInterface
+    public interface ImageProcessor {
+        PDImageXObject process() throws IOException;
+    }
+
+    /**
+     * Watermark attributes are compared by identity, since they are mutable.
+     */
+    private static final class AttrsKey {
+        private final List<WatermarkAttributes> attrs;
+
+        private AttrsKey(List<WatermarkAttributes> attrs) {
+            this.attrs = List.copyOf(attrs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof AttrsKey)) return false;
+            var otherAttrs = ((AttrsKey) o).attrs;
+            if (attrs.size() != otherAttrs.size()) return false;
+            for (int i = 0; i < attrs.size(); i++) {
+                if (attrs.get(i) != otherAttrs.get(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(attrs.size());
+            for (WatermarkAttributes attr : attrs) {
+                result = 31 * result + System.identityHashCode(attr);
+            }
+            return result;
+        }
+    }
+}
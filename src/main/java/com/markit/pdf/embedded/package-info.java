@@ -0,0 +1,4 @@
+/**
+ * Watermarking of the images embedded into PDF pages, leaving the rest of the page content intact.
+ */
+package com.markit.pdf.embedded;
@@ -0,0 +1,84 @@
+package com.markit.pdf.overlay;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.positioning.Coordinates;
+import com.markit.pdf.overlay.font.TextOutline;
+import com.markit.pdf.overlay.font.TextOutlines;
+import com.markit.pdf.overlay.positioning.WatermarkPositioner;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.rotation.MatrixTransformationProvider;
+import com.markit.pdf.overlay.rotation.TransformationType;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+
+/**
+ * Fills the outline of the text, written once per document as a form XObject, at every position of the
+ * watermark. The outline has its origin at the start of the baseline, so it is placed by the same matrix
+ * as text drawn with a font.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DefaultOutlineTextOverlayWatermarker implements OutlineTextOverlayWatermarker {
+
+    @Override
+    public void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
+        var outline = TextOutlines.of(attr);
+        var text = resources.outline(outline);
+        var trademark = attr.getTrademark() ? resources.outline(TextOutlines.trademark(attr)) : null;
+
+        var coordinates = WatermarkPositioner.defineXY(attr,
+                (int) pdRectangle.getWidth(), (int) pdRectangle.getHeight(),
+                (int) outline.getWidth(), (int) outline.getHeight());
+
+        var transformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
+                .getService(MatrixTransformationProvider.class);
+        contentStream.setNonStrokingColor(attr.getColor());
+        for (Coordinates c : coordinates) {
+            draw(contentStream, transformationProvider, outline, text, trademark, c, attr);
+        }
+    }
+
+    /**
+     * Draws the text at one position, and the trademark symbol when there is one
+     */
+    static void draw(PDPageContentStream contentStream, MatrixTransformationProvider transformationProvider,
+                     TextOutline outline, PDFormXObject text, PDFormXObject trademark,
+                     Coordinates c, WatermarkAttributes attr) throws IOException {
+        contentStream.saveGraphicsState();
+        contentStream.transform(transformationProvider.createRotationMatrix(
+                c, outline.getWidth(), outline.getHeight(), attr.getRotationDegrees(), TransformationType.TEXT_TRANSFORM));
+        contentStream.drawForm(text);
+        contentStream.restoreGraphicsState();
+
+        if (trademark != null) {
+            contentStream.saveGraphicsState();
+            contentStream.transform(trademarkMatrix(c, outline.getWidth(), outline.getHeight(), attr.getRotationDegrees()));
+            contentStream.drawForm(trademark);
+            contentStream.restoreGraphicsState();
+        }
+    }
+
+    /**
+     * The trademark symbol is placed at the upper right corner of the text, as the trademark service does
+     */
+    private static Matrix trademarkMatrix(Coordinates c, float textWidth, float textHeight, int rotationDegrees) {
+        var matrix = new Matrix();
+        matrix.translate(c.getX() + textWidth / 2, c.getY() + textHeight / 2);
+        if (rotationDegrees != 0) {
+            matrix.rotate(Math.toRadians(rotationDegrees));
+        }
+        matrix.translate(textWidth / 2, textHeight / 2);
+        return matrix;
+    }
+
+    @Override
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+}
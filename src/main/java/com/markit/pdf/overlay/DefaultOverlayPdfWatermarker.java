@@ -1,50 +1,124 @@
 package com.markit.pdf.overlay;
 
 import com.markit.api.WatermarkAttributes;
-import com.markit.pdf.overlay.opacity.GraphicsStateManager;
+import com.markit.pdf.overlay.font.TextOutlines;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.resources.PageGeometry;
+import com.markit.pdf.overlay.resources.StampKey;
+import com.markit.pdf.overlay.resources.StampMarker;
 import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * @author Oleg Cheban
  * @since 1.0
  */
-public class DefaultOverlayPdfWatermarker implements OverlayPdfWatermarker {
+public class DefaultOverlayPdfWatermarker implements StampOverlayPdfWatermarker {
 
     @Override
-    public void watermark(PDDocument document, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
-        var page = document.getPage(pageIndex);
-
+    public void watermark(PDDocument document, PDPage page, List<WatermarkAttributes> attrs, DocumentResourcePool resources) throws IOException {
+        var stamp = stamp(document, page, attrs, resources);
         try (PDPageContentStream contentStream =
                      new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            contentStream.drawForm(stamp);
+        }
+    }
+
+    @Override
+    public PDFormXObject stamp(PDDocument document, PDPage page, List<WatermarkAttributes> attrs,
+                               DocumentResourcePool resources) throws IOException {
+        var key = new StampKey(attrs, PageGeometry.of(page));
+        return resources.stamp(key, () -> compileStamp(resources, key.getGeometry().getMediaBox().toRectangle(), attrs));
+    }
+
+    /**
+     * Everything a stamp adds to the document (the stamp itself, images, text outlines, opacity states) is created here,
+     * on the calling thread, and only the content of the stamp is written on the executor.
+     * The fonts of the text are loaded and measured here too. The text itself is shown through
+     * {@link DocumentResourcePool#showText}, one stamp at a time, since a font collects the glyphs of its subset
+     * while the text is shown; the rest of a text stamp is written in parallel with the other stamps.
+     */
+    @Override
+    public void prepare(PDDocument document, PDPage page, List<WatermarkAttributes> attrs,
+                        DocumentResourcePool resources, Executor executor) throws IOException {
+        var key = new StampKey(attrs, PageGeometry.of(page));
+        if (resources.hasStamp(key)) {
+            return;
+        }
+        for (WatermarkAttributes attr : attrs) {
+            resources.opacityState(attr.getOpacity());
+            if (attr.getImage().isPresent()) {
+                resources.image(attr.getImage().get());
+            } else if (attr.isOutlineText()) {
+                resources.outline(TextOutlines.of(attr));
+                if (attr.getTrademark()) {
+                    resources.outline(TextOutlines.trademark(attr));
+                }
+            } else {
+                resources.font(attr);
+                resources.textMetrics(attr);
+            }
+        }
+        var mediaBox = key.getGeometry().getMediaBox().toRectangle();
+        var stamp = createStamp(document, mediaBox);
+        resources.compileStamp(key, () -> writeStamp(resources, stamp, mediaBox, attrs), executor);
+    }
+
+    /**
+     * The watermarks are drawn once into a form XObject (a stamp) that is shared by all pages
+     * of the same geometry, so every page only carries a reference to it.
+     */
+    private PDFormXObject compileStamp(DocumentResourcePool resources, PDRectangle mediaBox, List<WatermarkAttributes> attrs) throws IOException {
+        return writeStamp(resources, createStamp(resources.getDocument(), mediaBox), mediaBox, attrs);
+    }
+
+    private PDFormXObject createStamp(PDDocument document, PDRectangle mediaBox) {
+        var stamp = new PDFormXObject(document);
+        stamp.setResources(new PDResources());
+        stamp.setBBox(new PDRectangle(mediaBox.getLowerLeftX(), mediaBox.getLowerLeftY(), mediaBox.getWidth(), mediaBox.getHeight()));
+        StampMarker.mark(stamp);
+        return stamp;
+    }
+
+    private PDFormXObject writeStamp(DocumentResourcePool resources, PDFormXObject stamp, PDRectangle mediaBox,
+                                     List<WatermarkAttributes> attrs) throws IOException {
+        var document = resources.getDocument();
+        try (PDPageContentStream contentStream =
+                     new PDPageContentStream(document, stamp, stamp.getStream().createOutputStream(COSName.FLATE_DECODE))) {
+            for (WatermarkAttributes attr : attrs) {
+                contentStream.setGraphicsStateParameters(resources.opacityState(attr.getOpacity()));
 
-            attrs.forEach(attr -> {
-                try {
-                    var graphicsStateManager = (GraphicsStateManager) ServiceFactory.getInstance()
-                            .getService(GraphicsStateManager.class);
-                    var opacityState = graphicsStateManager.createOpacityState(attr.getOpacity());
-                    contentStream.setGraphicsStateParameters(opacityState);
-
-                    if (attr.getImage().isPresent()){
-                        var image = LosslessFactory.createFromImage(document, attr.getImage().get());
-                        var imageBasedOverlayWatermarker = (ImageBasedOverlayWatermarker) ServiceFactory.getInstance()
-                                .getService(ImageBasedOverlayWatermarker.class);
-                        imageBasedOverlayWatermarker.overlay(contentStream, image, page.getMediaBox(), attr);
-                    } else {
-                        var textBasedOverlayWatermarker = (TextBasedOverlayWatermarker) ServiceFactory.getInstance()
-                                .getService(TextBasedOverlayWatermarker.class);
-                        textBasedOverlayWatermarker.overlay(document, contentStream, page.getMediaBox(), attr);
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+                if (attr.isTilingPattern()) {
+                    var tilingPatternOverlayWatermarker = (TilingPatternOverlayWatermarker) ServiceFactory.getInstance()
+                            .getService(TilingPatternOverlayWatermarker.class);
+                    tilingPatternOverlayWatermarker.overlay(resources, contentStream, stamp.getResources(), mediaBox, attr);
+                } else if (attr.getImage().isPresent()){
+                    var image = resources.image(attr.getImage().get());
+                    var imageBasedOverlayWatermarker = (ImageBasedOverlayWatermarker) ServiceFactory.getInstance()
+                            .getService(ImageBasedOverlayWatermarker.class);
+                    imageBasedOverlayWatermarker.overlay(contentStream, image, mediaBox, attr);
+                } else if (attr.isOutlineText()) {
+                    var outlineTextOverlayWatermarker = (OutlineTextOverlayWatermarker) ServiceFactory.getInstance()
+                            .getService(OutlineTextOverlayWatermarker.class);
+                    outlineTextOverlayWatermarker.overlay(resources, contentStream, mediaBox, attr);
+                } else {
+                    var textBasedOverlayWatermarker = (TextBasedOverlayWatermarker) ServiceFactory.getInstance()
+                            .getService(TextBasedOverlayWatermarker.class);
+                    textBasedOverlayWatermarker.overlay(resources, contentStream, mediaBox, attr);
                 }
-            });
+            }
         }
+        return stamp;
     }
 
     @Override
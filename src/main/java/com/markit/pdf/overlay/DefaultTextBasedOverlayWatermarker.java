@@ -2,14 +2,12 @@ package com.markit.pdf.overlay;
 
 import com.markit.api.WatermarkAttributes;
 import com.markit.api.positioning.Coordinates;
-import com.markit.pdf.overlay.font.DefaultFontProvider;
-import com.markit.pdf.overlay.font.FontProvider;
 import com.markit.pdf.overlay.positioning.WatermarkPositioner;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
 import com.markit.pdf.overlay.rotation.MatrixTransformationProvider;
 import com.markit.pdf.overlay.rotation.TransformationType;
 import com.markit.pdf.overlay.trademark.TrademarkService;
 import com.markit.servicelocator.ServiceFactory;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 
@@ -18,41 +16,33 @@ import java.io.IOException;
 public class DefaultTextBasedOverlayWatermarker implements TextBasedOverlayWatermarker {
 
     @Override
-    public void overlay(PDDocument document, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
-        initFonts(document, contentStream, attr);
+    public void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
+        var font = resources.font(attr);
+        var metrics = resources.textMetrics(attr);
 
         var coordinates = WatermarkPositioner.defineXY(attr,
                 (int) pdRectangle.getWidth(), (int) pdRectangle.getHeight (),
-                (int) attr.getPdfWatermarkTextWidth(), (int) attr.getPdfWatermarkTextHeight());
+                (int) metrics.getWidth(), (int) metrics.getHeight());
 
+        var textTransformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
+                .getService(MatrixTransformationProvider.class);
         for (Coordinates c : coordinates) {
-            var textTransformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
-                    .getService(MatrixTransformationProvider.class);
-
             var matrix = textTransformationProvider.createRotationMatrix(
-                    c, attr.getPdfWatermarkTextWidth(), attr.getPdfWatermarkTextHeight(), attr.getRotationDegrees(), TransformationType.TEXT_TRANSFORM);
+                    c, metrics.getWidth(), metrics.getHeight(), attr.getRotationDegrees(), TransformationType.TEXT_TRANSFORM);
 
             contentStream.beginText();
-            contentStream.setFont(attr.getResolvedPdfFont(), attr.getPdfTextSize());
             contentStream.setNonStrokingColor(attr.getColor());
             contentStream.setTextMatrix(matrix);
-            contentStream.showText(attr.getText());
+            resources.showText(contentStream, font, attr.getPdfTextSize(), attr.getText());
             contentStream.endText();
 
             if (attr.getTrademark()) {
                 var trademarkService = (TrademarkService) ServiceFactory.getInstance().getService(TrademarkService.class);
-                trademarkService.overlayTrademark(contentStream, attr, c);
+                trademarkService.overlayTrademark(resources, contentStream, attr, c);
             }
         }
     }
 
-    private void initFonts(PDDocument document, PDPageContentStream contentStream, WatermarkAttributes attr) throws IOException {
-        var fontProvider = (DefaultFontProvider) ServiceFactory.getInstance().getService(FontProvider.class);
-        if (fontProvider.canHandle(attr)) {
-            contentStream.setFont(fontProvider.loadFont(document, attr), attr.getPdfTextSize());
-        }
-    }
-
     @Override
     public int getPriority() {
         return DEFAULT_PRIORITY;
@@ -0,0 +1,172 @@
+package com.markit.pdf.overlay;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.api.positioning.Coordinates;
+import com.markit.pdf.overlay.font.TextOutlines;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.rotation.MatrixTransformationProvider;
+import com.markit.pdf.overlay.rotation.TransformationType;
+import com.markit.pdf.overlay.trademark.TrademarkService;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
+
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+
+/**
+ * Paints a tiled watermark as one rectangle filled with a tiling pattern, so the size of the content stream
+ * doesn't depend on the number of tiles on the page.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DefaultTilingPatternOverlayWatermarker implements TilingPatternOverlayWatermarker {
+
+    @Override
+    public void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDResources contentResources,
+                        PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
+        Tile tile;
+        if (attr.getImage().isPresent()) {
+            tile = imageTile(resources, attr);
+        } else if (attr.isOutlineText()) {
+            tile = outlineTile(resources, attr);
+        } else {
+            tile = textTile(resources, attr);
+        }
+        var pattern = createPattern(resources.getDocument(), tile, attr);
+
+        var patternName = contentResources.add(pattern);
+        contentStream.setNonStrokingColor(new PDColor(patternName, new PDPattern(null)));
+        contentStream.addRect(pdRectangle.getLowerLeftX(), pdRectangle.getLowerLeftY(),
+                pdRectangle.getWidth(), pdRectangle.getHeight());
+        contentStream.fill();
+    }
+
+    /**
+     * The pattern cell has the size of one tile plus the spacing, as the tiles of
+     * {@link com.markit.api.positioning.PositionCoordinates#tiled} do. A rotated tile overhangs its cell,
+     * so the cell also carries the parts of the neighbouring tiles that fall into it.
+     */
+    private PDTilingPattern createPattern(PDDocument document, Tile tile, WatermarkAttributes attr) throws IOException {
+        int xStep = (int) tile.width + attr.getHorizontalSpacing();
+        int yStep = (int) tile.height + attr.getVerticalSpacing();
+
+        var pattern = new PDTilingPattern();
+        pattern.setPaintType(PDTilingPattern.PAINT_COLORED);
+        pattern.setTilingType(PDTilingPattern.TILING_CONSTANT_SPACING);
+        pattern.setXStep(xStep);
+        pattern.setYStep(yStep);
+        pattern.setBBox(new PDRectangle(xStep, yStep));
+        pattern.setMatrix(AffineTransform.getTranslateInstance(
+                attr.getPositionCoordinates().getX(), attr.getPositionCoordinates().getY()));
+
+        double radians = Math.toRadians(attr.getRotationDegrees());
+        double cos = Math.abs(Math.cos(radians));
+        double sin = Math.abs(Math.sin(radians));
+        double halfWidth = (tile.width * cos + tile.height * sin) / 2 + tile.padding;
+        double halfHeight = (tile.width * sin + tile.height * cos) / 2 + tile.padding;
+        double centerX = tile.width / 2;
+        double centerY = tile.height / 2;
+        int reachX = (int) Math.ceil((halfWidth + centerX) / xStep) + 1;
+        int reachY = (int) Math.ceil((halfHeight + centerY) / yStep) + 1;
+
+        try (var cellStream = new PDPageContentStream(document, pattern,
+                pattern.getContentStream().createOutputStream(COSName.FLATE_DECODE))) {
+            for (int i = -reachX; i <= reachX; i++) {
+                double x = centerX + i * xStep;
+                if (x - halfWidth >= xStep || x + halfWidth <= 0) continue;
+                for (int j = -reachY; j <= reachY; j++) {
+                    double y = centerY + j * yStep;
+                    if (y - halfHeight >= yStep || y + halfHeight <= 0) continue;
+                    tile.painter.paint(cellStream, new Coordinates(i * xStep, j * yStep));
+                }
+            }
+        }
+        return pattern;
+    }
+
+    private Tile textTile(DocumentResourcePool resources, WatermarkAttributes attr) throws IOException {
+        var font = resources.font(attr);
+        var metrics = resources.textMetrics(attr);
+        var transformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
+                .getService(MatrixTransformationProvider.class);
+        float width = metrics.getWidth();
+        float height = metrics.getHeight();
+
+        return new Tile(width, height, attr.getPdfTextSize(), (contentStream, c) -> {
+            var matrix = transformationProvider.createRotationMatrix(
+                    c, width, height, attr.getRotationDegrees(), TransformationType.TEXT_TRANSFORM);
+
+            contentStream.beginText();
+            contentStream.setNonStrokingColor(attr.getColor());
+            contentStream.setTextMatrix(matrix);
+            resources.showText(contentStream, font, attr.getPdfTextSize(), attr.getText());
+            contentStream.endText();
+
+            if (attr.getTrademark()) {
+                var trademarkService = (TrademarkService) ServiceFactory.getInstance().getService(TrademarkService.class);
+                trademarkService.overlayTrademark(resources, contentStream, attr, c);
+            }
+        });
+    }
+
+    private Tile outlineTile(DocumentResourcePool resources, WatermarkAttributes attr) throws IOException {
+        var outline = TextOutlines.of(attr);
+        var text = resources.outline(outline);
+        var trademark = attr.getTrademark() ? resources.outline(TextOutlines.trademark(attr)) : null;
+        var transformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
+                .getService(MatrixTransformationProvider.class);
+
+        return new Tile(outline.getWidth(), outline.getHeight(), attr.getPdfTextSize(), (contentStream, c) -> {
+            contentStream.setNonStrokingColor(attr.getColor());
+            DefaultOutlineTextOverlayWatermarker.draw(contentStream, transformationProvider, outline, text, trademark, c, attr);
+        });
+    }
+
+    private Tile imageTile(DocumentResourcePool resources, WatermarkAttributes attr) throws IOException {
+        var imageXObject = resources.image(attr.getImage().get());
+        var transformationProvider = (MatrixTransformationProvider) ServiceFactory.getInstance()
+                .getService(MatrixTransformationProvider.class);
+        float width = (int) (imageXObject.getWidth() * (attr.getSize() / 300f));
+        float height = (int) (imageXObject.getHeight() * (attr.getSize() / 300f));
+
+        return new Tile(width, height, 0, (contentStream, c) -> {
+            contentStream.saveGraphicsState();
+            contentStream.transform(transformationProvider.createRotationMatrix(
+                    c, width, height, attr.getRotationDegrees(), TransformationType.IMAGE_TRANSFORM));
+            contentStream.drawImage(imageXObject, c.getX(), c.getY(), width, height);
+            contentStream.restoreGraphicsState();
+        });
+    }
+
+    @Override
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    @FunctionalInterface
+    private interface TilePainter {
+        void paint(PDPageContentStream contentStream, Coordinates c) throws IOException;
+    }
+
+    private static final class Tile {
+        private final float width;
+        private final float height;
+        private final float padding;
+        private final TilePainter painter;
+
+        private Tile(float width, float height, float padding, TilePainter painter) {
+            this.width = width;
+            this.height = height;
+            this.padding = padding;
+            this.painter = painter;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.markit.pdf.overlay;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.servicelocator.Prioritizable;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+
+/**
+ * The interface for adding text-based watermarks drawn as the outlines of their glyphs
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface OutlineTextOverlayWatermarker extends Prioritizable {
+
+    /**
+     * Adds a watermark
+     *
+     * @param resources the resources shared by all pages of the document
+     * @param contentStream pdf page content stream
+     * @param pdRectangle the page boundaries in default user space units (PDF points)
+     * @param attr the watermark attributes
+     */
+    void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException;
+}
@@ -10,6 +10,10 @@ import java.util.List;
 
 /**
  * The interface for applying watermarks to a PDF page via overlay mode. ({@link WatermarkingMethod#OVERLAY method}
+ * <p>
+ * A {@link StampOverlayPdfWatermarker} draws the watermarks of a page as a stamp shared by the pages of the same
+ * geometry. The watermarks of other watermarkers are turned into a stamp by watermarking a blank page.
+ * </p>
  *
  * @author Oleg Cheban
  * @since 1.0
@@ -0,0 +1,62 @@
+package com.markit.pdf.overlay;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link OverlayPdfWatermarker} that draws the watermarks of a page as a stamp, a form XObject shared through
+ * the {@link DocumentResourcePool} by all pages of the same geometry.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface StampOverlayPdfWatermarker extends OverlayPdfWatermarker {
+
+    @Override
+    default void watermark(PDDocument document, int pageIndex, List<WatermarkAttributes> attrs) throws IOException {
+        watermark(document, document.getPage(pageIndex), attrs, new DocumentResourcePool(document));
+    }
+
+    /**
+     * Overlay a text watermark to a specific page of a PDF document.
+     *
+     * @param document The PDF document to which the watermark will be applied.
+     * @param page The page of the document to be watermarked.
+     * @param attrs The attributes of watermark
+     * @param resources The resources shared by all pages of the document
+     */
+    void watermark(PDDocument document, PDPage page, List<WatermarkAttributes> attrs, DocumentResourcePool resources) throws IOException;
+
+    /**
+     * Returns the stamp that carries the watermarks of a page, compiling it if needed, without drawing it
+     * on the page. The stamp is marked, see {@link com.markit.pdf.overlay.resources.StampMarker}.
+     *
+     * @param document The PDF document to which the watermark will be applied.
+     * @param page The page of the document to be watermarked.
+     * @param attrs The attributes of watermark
+     * @param resources The resources shared by all pages of the document
+     */
+    PDFormXObject stamp(PDDocument document, PDPage page, List<WatermarkAttributes> attrs,
+                        DocumentResourcePool resources) throws IOException;
+
+    /**
+     * Prepares the watermarks of a page ahead of {@link #watermark}, so that the expensive part of the work
+     * can run on the executor. It's called on the calling thread for all pages before any of them is watermarked.
+     *
+     * @param document The PDF document to which the watermark will be applied.
+     * @param page The page of the document to be watermarked.
+     * @param attrs The attributes of watermark
+     * @param resources The resources shared by all pages of the document
+     * @param executor The executor the work may be offloaded to
+     */
+    default void prepare(PDDocument document, PDPage page, List<WatermarkAttributes> attrs,
+                         DocumentResourcePool resources, Executor executor) throws IOException {
+    }
+}
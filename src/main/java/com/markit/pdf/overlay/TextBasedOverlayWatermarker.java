@@ -1,6 +1,7 @@
 package com.markit.pdf.overlay;
 
 import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
 import com.markit.servicelocator.Prioritizable;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -16,12 +17,32 @@ import java.io.IOException;
  */
 public interface TextBasedOverlayWatermarker extends Prioritizable {
 
+    /**
+     * Adds a watermark. Implementations override this method or {@link #overlay(DocumentResourcePool,
+     * PDPageContentStream, PDRectangle, WatermarkAttributes)}.
+     *
+     * @param document the PDF document
+     * @param contentStream pdf page content stream
+     * @param pdRectangle the page boundaries in default user space units (PDF points)
+     * @param attr the watermark attributes
+     * @deprecated the fonts of the document are shared by its pages through a {@link DocumentResourcePool},
+     * use {@link #overlay(DocumentResourcePool, PDPageContentStream, PDRectangle, WatermarkAttributes)}
+     */
+    @Deprecated
+    default void overlay(PDDocument document, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
+        overlay(new DocumentResourcePool(document), contentStream, pdRectangle, attr);
+    }
+
     /**
      * Adds a watermark
      *
+     * @param resources the resources shared by all pages of the document
      * @param contentStream pdf page content stream
      * @param pdRectangle the page boundaries in default user space units (PDF points)
      * @param attr the watermark attributes
+     * @since 1.5.0
      */
-    void overlay(PDDocument document, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException;
+    default void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException {
+        overlay(resources.getDocument(), contentStream, pdRectangle, attr);
+    }
 }
@@ -0,0 +1,31 @@
+package com.markit.pdf.overlay;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.servicelocator.Prioritizable;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+
+/**
+ * The interface for adding tiled watermarks as a single tiling pattern fill
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public interface TilingPatternOverlayWatermarker extends Prioritizable {
+
+    /**
+     * Fills the page with a tiling pattern whose cell holds one tile of the watermark
+     *
+     * @param resources the resources shared by all pages of the document
+     * @param contentStream pdf content stream
+     * @param contentResources the resources of the content stream, the pattern is registered there
+     * @param pdRectangle the page boundaries in default user space units (PDF points)
+     * @param attr the watermark attributes
+     */
+    void overlay(DocumentResourcePool resources, PDPageContentStream contentStream, PDResources contentResources,
+                 PDRectangle pdRectangle, WatermarkAttributes attr) throws IOException;
+}
@@ -6,27 +6,44 @@ import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Objects;
 
+/**
+ * Shows text the standard PDF fonts can't with a font of its {@link FontFallbackChain}.
+ * The font is parsed once for the JVM and embedded into every document as a subset of its own.
+ */
 public class DefaultFontProvider implements FontProvider {
+    private final FontFallbackChain fallbackChain;
+
+    /**
+     * A provider of the bundled Cyrillic font
+     */
+    public DefaultFontProvider() {
+        this(new FontFallbackChain());
+    }
+
+    /**
+     * A provider of the fonts of the chain
+     *
+     * @since 1.5.0
+     */
+    public DefaultFontProvider(FontFallbackChain fallbackChain) {
+        this.fallbackChain = Objects.requireNonNull(fallbackChain, "FontFallbackChain must not be null");
+    }
 
     @Override
     public PDFont loadFont(PDDocument document, WatermarkAttributes attributes) throws IOException {
-        final String fontPath = "font/a3arialrusnormal.ttf";
-        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
-        try (InputStream fontStream = classloader.getResourceAsStream(fontPath)) {
-            if (fontStream == null) {
-                throw new IOException("Cyrillic font not found at path: " + fontPath);
-            }
-            var font = PDType0Font.load(document, fontStream);
-            attributes.setCyrillicFont(font);
-            return font;
-        }
+        return PDType0Font.load(document, fallbackChain.select(attributes.getText()), true);
+    }
+
+    @Override
+    public Object fontKey(WatermarkAttributes attributes) throws IOException {
+        return fallbackChain.select(attributes.getText());
     }
 
     @Override
     public boolean canHandle(WatermarkAttributes attributes) {
-        return attributes.isCyrillic();
+        return attributes.isNonLatin();
     }
 
     @Override
@@ -0,0 +1,78 @@
+package com.markit.pdf.overlay.font;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TrueType fonts parsed by the JVM, keyed by font file.
+ * <p>
+ * A font file is read and parsed once and the parsed font is embedded into any number of documents,
+ * each document getting its own subset. A parsed font reads its tables under a lock, so it can be shared
+ * by documents watermarked at the same time, as PDFBox shares the system fonts it maps.
+ * The fonts are few and are kept for the life of the JVM.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class FontCache {
+    private static final Map<String, TrueTypeFont> fonts = new ConcurrentHashMap<>();
+
+    private FontCache() {
+    }
+
+    /**
+     * Returns the font of a classpath resource, parsing it on the first request
+     *
+     * @param path the path of the font file on the classpath, e.g. {@code font/a3arialrusnormal.ttf}
+     */
+    public static TrueTypeFont classpath(String path) throws IOException {
+        return get("classpath:" + path, () -> {
+            var classloader = Thread.currentThread().getContextClassLoader();
+            try (var fontStream = classloader.getResourceAsStream(path)) {
+                if (fontStream == null) {
+                    throw new IOException("Font not found at path: " + path);
+                }
+                return new TTFParser().parse(fontStream);
+            }
+        });
+    }
+
+    /**
+     * Returns the font of a file, parsing it on the first request
+     */
+    public static TrueTypeFont file(Path path) throws IOException {
+        var file = path.toAbsolutePath().normalize();
+        return get("file:" + file, () -> {
+            try (var fontStream = Files.newInputStream(file)) {
+                return new TTFParser().parse(fontStream);
+            }
+        });
+    }
+
+    private static TrueTypeFont get(String key, FontParser parser) throws IOException {
+        try {
+            return fonts.computeIfAbsent(key, k -> {
+                try {
+                    return parser.parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FontParser {
+        TrueTypeFont parse() throws IOException;
+    }
+}
@@ -0,0 +1,138 @@
+package com.markit.pdf.overlay.font;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+
+import java.io.IOException;
+import java.lang.Character.UnicodeScript;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The fonts a {@link DefaultFontProvider} picks from for text the standard PDF fonts can't show,
+ * in order of preference.
+ * <p>
+ * Every font serves some scripts, or any script. The text of a watermark is shown with the first font
+ * that serves its scripts and has a glyph for every character of it. A new chain holds the bundled
+ * Cyrillic font; fonts for other scripts, such as CJK, Arabic or Hebrew, are added by the application,
+ * which registers a font provider of its own with the chain:
+ * </p>
+ * <pre>{@code
+ * public class NotoFontProvider extends DefaultFontProvider {
+ *     public NotoFontProvider() {
+ *         super(new FontFallbackChain()
+ *                 .add(Path.of("/usr/share/fonts/NotoSansCJK-Regular.ttf"), UnicodeScript.HAN, UnicodeScript.HIRAGANA)
+ *                 .add(Path.of("/usr/share/fonts/DejaVuSans.ttf")));
+ *     }
+ *
+ *     public int getPriority() {
+ *         return DEFAULT_PRIORITY + 1;
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * The fonts are parsed once for the JVM by the {@link FontCache}, whichever chains they are in.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class FontFallbackChain {
+    private static final String DEFAULT_FONT = "font/a3arialrusnormal.ttf";
+    private static final Set<UnicodeScript> STANDARD_SCRIPTS =
+            EnumSet.of(UnicodeScript.LATIN, UnicodeScript.COMMON, UnicodeScript.INHERITED);
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * A chain of the bundled Cyrillic font
+     */
+    public FontFallbackChain() {
+        entries.add(new Entry(new UnicodeScript[]{UnicodeScript.CYRILLIC}, () -> FontCache.classpath(DEFAULT_FONT)));
+    }
+
+    /**
+     * Adds a font of the classpath to the end of the chain
+     *
+     * @param path the path of the font file on the classpath
+     * @param scripts the scripts the font serves, none for any script
+     * @return this chain
+     */
+    public FontFallbackChain add(String path, UnicodeScript... scripts) {
+        entries.add(new Entry(scripts, () -> FontCache.classpath(path)));
+        return this;
+    }
+
+    /**
+     * Adds a font file to the end of the chain
+     *
+     * @param path the font file
+     * @param scripts the scripts the font serves, none for any script
+     * @return this chain
+     */
+    public FontFallbackChain add(Path path, UnicodeScript... scripts) {
+        entries.add(new Entry(scripts, () -> FontCache.file(path)));
+        return this;
+    }
+
+    /**
+     * Returns the first font of the chain that serves the scripts of the text and covers all of its characters
+     *
+     * @throws IOException if no font does
+     */
+    public TrueTypeFont select(String text) throws IOException {
+        var scripts = scriptsOf(text);
+        for (Entry entry : entries) {
+            if (entry.serves(scripts)) {
+                var font = entry.font();
+                if (covers(font, text)) {
+                    return font;
+                }
+            }
+        }
+        throw new IOException(String.format("No font of the fallback chain can show the text '%s' (%s)", text, scripts));
+    }
+
+    private static boolean covers(TrueTypeFont font, String text) throws IOException {
+        var cmap = font.getUnicodeCmapLookup(false);
+        if (cmap == null) {
+            return false;
+        }
+        return text.codePoints()
+                .filter(codePoint -> !Character.isWhitespace(codePoint))
+                .allMatch(codePoint -> cmap.getGlyphId(codePoint) != 0);
+    }
+
+    private static Set<UnicodeScript> scriptsOf(String text) {
+        var scripts = EnumSet.noneOf(UnicodeScript.class);
+        text.codePoints().mapToObj(UnicodeScript::of)
+                .filter(script -> !STANDARD_SCRIPTS.contains(script))
+                .forEach(scripts::add);
+        return scripts;
+    }
+
+    private static final class Entry {
+        private final Set<UnicodeScript> scripts;
+        private final FontLoader loader;
+
+        private Entry(UnicodeScript[] scripts, FontLoader loader) {
+            this.scripts = scripts.length == 0 ? Set.of() : EnumSet.copyOf(List.of(scripts));
+            this.loader = loader;
+        }
+
+        private boolean serves(Set<UnicodeScript> textScripts) {
+            return scripts.isEmpty() || scripts.containsAll(textScripts);
+        }
+
+        private TrueTypeFont font() throws IOException {
+            return loader.load();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FontLoader {
+        TrueTypeFont load() throws IOException;
+    }
+}
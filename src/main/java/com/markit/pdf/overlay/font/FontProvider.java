@@ -22,6 +22,18 @@ public interface FontProvider extends Prioritizable {
      */
     PDFont loadFont(PDDocument document, WatermarkAttributes attributes) throws IOException;
 
+    /**
+     * Identifies the font the provider loads for the given attributes, so that a document loads every font once.
+     * By default the provider loads a single font.
+     *
+     * @param attributes the watermark attributes
+     * @return a key that is equal for the attributes the same font is loaded for
+     * @throws IOException if the font can't be determined
+     */
+    default Object fontKey(WatermarkAttributes attributes) throws IOException {
+        return this;
+    }
+
     /**
      * Indicates whether this provider can handle the given attributes
      *
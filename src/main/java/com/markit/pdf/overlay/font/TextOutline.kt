@@ -0,0 +1,27 @@
+package com.markit.pdf.overlay.font
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import java.io.OutputStream
+
+/**
+ * A text converted into the outlines of its glyphs, as the path operators of a PDF content stream that fill it.
+ * The origin is the start of the baseline, as for text drawn by a content stream. It is shared by all
+ * documents, so it is never modified. Compared by identity, the cache hands out one instance per text.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+class TextOutline(
+    private val pathOperators: ByteArray,
+    /** The advance of the text */
+    val width: Float,
+    /** The height of the glyphs above the baseline */
+    val height: Float,
+    /** The bounds of the glyphs */
+    val bounds: PDRectangle
+) {
+    /**
+     * Writes the path operators into a content stream
+     */
+    fun writeTo(output: OutputStream) = output.write(pathOperators)
+}
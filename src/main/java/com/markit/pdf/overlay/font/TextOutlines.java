@@ -0,0 +1,183 @@
+package com.markit.pdf.overlay.font;
+
+import com.markit.api.Font;
+import com.markit.api.WatermarkAttributes;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.PathIterator;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Converts the text of a watermark into the outlines of its glyphs, kept for the whole JVM.
+ * <p>
+ * The text is shaped by AWT, as it is when a watermark is drawn on an image, so every script the JVM can
+ * lay out is supported without a font in the PDF. An outline is computed once per text, font and size and
+ * written by any number of documents, so no font is parsed, subset or embedded per document.
+ * The cache keeps the outlines used last.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class TextOutlines {
+    private static final String TRADEMARK_SYMBOL = "®";
+    private static final int MAX_OUTLINES = 256;
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private static final Map<Key, TextOutline> outlines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, TextOutline> eldest) {
+            return size() > MAX_OUTLINES;
+        }
+    };
+
+    private TextOutlines() {
+    }
+
+    /**
+     * The outline of the text of the watermark at its PDF text size
+     */
+    public static TextOutline of(WatermarkAttributes attr) {
+        return of(new Key(attr.getText(), attr.getFont(), attr.isBold(), attr.getPdfTextSize()));
+    }
+
+    /**
+     * The outline of the trademark symbol of the watermark, a quarter of the watermark size
+     */
+    public static TextOutline trademark(WatermarkAttributes attr) {
+        return of(new Key(TRADEMARK_SYMBOL, attr.getFont(), attr.isBold(), attr.getSize() / 4));
+    }
+
+    private static TextOutline of(Key key) {
+        synchronized (outlines) {
+            var outline = outlines.get(key);
+            if (outline != null) {
+                return outline;
+            }
+        }
+        // computed outside the lock, a text computed twice at the same time is kept once
+        var outline = compute(key);
+        synchronized (outlines) {
+            return outlines.computeIfAbsent(key, k -> outline);
+        }
+    }
+
+    private static TextOutline compute(Key key) {
+        if (key.text.isEmpty()) {
+            return new TextOutline(new byte[0], 0, 0, new PDRectangle(0, 0));
+        }
+        var font = new java.awt.Font(key.font.getAwtFontName(), key.bold ? java.awt.Font.BOLD : java.awt.Font.PLAIN, 1)
+                .deriveFont(key.size);
+        var layout = new TextLayout(key.text, font, RENDER_CONTEXT);
+        // AWT puts y downwards, the outline is flipped into the y upwards space of PDF
+        var shape = layout.getOutline(null);
+        var bounds = shape.getBounds2D();
+        return new TextOutline(
+                pathOperators(shape),
+                layout.getAdvance(),
+                (float) Math.max(0, -bounds.getMinY()),
+                new PDRectangle((float) bounds.getMinX(), (float) -bounds.getMaxY(),
+                        (float) bounds.getWidth(), (float) bounds.getHeight()));
+    }
+
+    /**
+     * The quadratic curves of TrueType glyphs are written as the cubic curves PDF has
+     */
+    private static byte[] pathOperators(Shape shape) {
+        var operators = new StringBuilder();
+        var coords = new double[6];
+        double lastX = 0;
+        double lastY = 0;
+        var path = shape.getPathIterator(null);
+        for (; !path.isDone(); path.next()) {
+            switch (path.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    point(operators, coords[0], coords[1]).append("m\n");
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_LINETO:
+                    point(operators, coords[0], coords[1]).append("l\n");
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    point(operators, lastX + 2 * (coords[0] - lastX) / 3, lastY + 2 * (coords[1] - lastY) / 3);
+                    point(operators, coords[2] + 2 * (coords[0] - coords[2]) / 3, coords[3] + 2 * (coords[1] - coords[3]) / 3);
+                    point(operators, coords[2], coords[3]).append("c\n");
+                    lastX = coords[2];
+                    lastY = coords[3];
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    point(operators, coords[0], coords[1]);
+                    point(operators, coords[2], coords[3]);
+                    point(operators, coords[4], coords[5]).append("c\n");
+                    lastX = coords[4];
+                    lastY = coords[5];
+                    break;
+                default:
+                    operators.append("h\n");
+            }
+        }
+        operators.append(path.getWindingRule() == PathIterator.WIND_EVEN_ODD ? "f*\n" : "f\n");
+        return operators.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static StringBuilder point(StringBuilder operators, double x, double y) {
+        return number(number(operators, x), -y);
+    }
+
+    /**
+     * A thousandth of a point is far below what a viewer can show
+     */
+    private static StringBuilder number(StringBuilder operators, double value) {
+        long thousandths = Math.round(value * 1000);
+        if (thousandths < 0) {
+            operators.append('-');
+            thousandths = -thousandths;
+        }
+        operators.append(thousandths / 1000);
+        long fraction = thousandths % 1000;
+        if (fraction != 0) {
+            operators.append('.');
+            if (fraction < 100) operators.append('0');
+            if (fraction < 10) operators.append('0');
+            while (fraction % 10 == 0) fraction /= 10;
+            operators.append(fraction);
+        }
+        return operators.append(' ');
+    }
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final boolean bold;
+        private final float size;
+
+        private Key(String text, Font font, boolean bold, float size) {
+            this.text = text;
+            this.font = font;
+            this.bold = bold;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return bold == key.bold && Float.compare(size, key.size) == 0 && text.equals(key.text) && font == key.font;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, font, bold, size);
+        }
+    }
+}
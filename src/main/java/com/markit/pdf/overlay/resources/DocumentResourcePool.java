@@ -0,0 +1,265 @@
+package com.markit.pdf.overlay.resources;
+
+import com.markit.api.WatermarkAttributes;
+import com.markit.pdf.overlay.font.FontProvider;
+import com.markit.pdf.overlay.font.TextOutline;
+import com.markit.pdf.overlay.opacity.GraphicsStateManager;
+import com.markit.servicelocator.ServiceFactory;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Resources shared by all watermarked pages of a single document.
+ * <p>
+ * Each distinct watermark image, font, text outline, opacity state and compiled stamp is created in the document once
+ * and then referenced from every page, so the output size doesn't grow with the number of pages.
+ * A pool belongs to exactly one document and must not outlive it.
+ * </p>
+ * <p>
+ * Stamps may be compiled on an executor, so the pool is thread-safe. Objects are still added to the document
+ * on the calling thread only: a stamp compiled on the executor must find its resources in the pool already.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public class DocumentResourcePool {
+
+    private final PDDocument document;
+    private final Map<BufferedImage, PDImageXObject> images = new IdentityHashMap<>();
+    private final Map<Integer, PDExtendedGraphicsState> opacityStates = new HashMap<>();
+    private final Map<List<Object>, PDFont> fonts = new HashMap<>();
+    private final Map<List<Object>, TextMetrics> textMetrics = new HashMap<>();
+    private final Map<TextOutline, PDFormXObject> outlines = new IdentityHashMap<>();
+    private final Map<StampKey, CompletableFuture<PDFormXObject>> stamps = new HashMap<>();
+
+    public DocumentResourcePool(PDDocument document) {
+        this.document = document;
+    }
+
+    public PDDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns the image XObject of a watermark image, embedding the image on the first request
+     */
+    public synchronized PDImageXObject image(BufferedImage image) throws IOException {
+        var imageXObject = images.get(image);
+        if (imageXObject == null) {
+            imageXObject = LosslessFactory.createFromImage(document, image);
+            images.put(image, imageXObject);
+        }
+        return imageXObject;
+    }
+
+    /**
+     * Returns the graphics state for the given opacity (0-100)
+     */
+    public synchronized PDExtendedGraphicsState opacityState(int opacity) {
+        return opacityStates.computeIfAbsent(opacity, o -> {
+            var graphicsStateManager = (GraphicsStateManager) ServiceFactory.getInstance()
+                    .getService(GraphicsStateManager.class);
+            return graphicsStateManager.createOpacityState(o);
+        });
+    }
+
+    /**
+     * Returns the font the text of the watermark is shown with in this document. The font is kept here
+     * rather than in the attributes, which may be used for several documents at the same time.
+     */
+    public synchronized PDFont font(WatermarkAttributes attr) throws IOException {
+        var fontProvider = (FontProvider) ServiceFactory.getInstance().getService(FontProvider.class);
+        if (fontProvider.canHandle(attr)) {
+            return font(fontProvider, attr);
+        }
+        var standardFont = standardFont(attr);
+        var key = List.<Object>of(standardFont);
+        var font = fonts.get(key);
+        if (font == null) {
+            font = copyOf(standardFont);
+            fonts.put(key, font);
+        }
+        return font;
+    }
+
+    /**
+     * Returns the font of the text when no document is involved: a standard font shared by every document,
+     * or the cyrillic font set by the caller for a text the standard fonts can't show.
+     */
+    public static PDFont sharedFont(WatermarkAttributes attr) {
+        if (attr.isNonLatin()) {
+            return Objects.requireNonNull(attr.getCyrillicFont(), "A font must be provided for non-Latin text");
+        }
+        return standardFont(attr);
+    }
+
+    private static PDFont standardFont(WatermarkAttributes attr) {
+        return attr.isBold() ? attr.getFont().getBoldPdFont() : attr.getFont().getPdFont();
+    }
+
+    /**
+     * The standard 14 fonts are singletons shared by every document in the JVM. Each document gets its own copy,
+     * so documents watermarked concurrently never measure or encode text with the same font object.
+     */
+    private static PDFont copyOf(PDFont standardFont) throws IOException {
+        var dictionary = new COSDictionary();
+        dictionary.addAll(standardFont.getCOSObject());
+        return new PDType1Font(dictionary);
+    }
+
+    /**
+     * Returns the size of the text of the watermark shown with its font. Measuring the text walks its glyphs,
+     * so the metrics are kept for every font, text and size. Every tile of every stamp asks for them.
+     */
+    public synchronized TextMetrics textMetrics(WatermarkAttributes attr) throws IOException {
+        var font = font(attr);
+        var key = List.<Object>of(font, attr.getText(), attr.getSize(), attr.getAdjustTextSizeCf());
+        var metrics = textMetrics.get(key);
+        if (metrics == null) {
+            metrics = TextMetrics.of(font, attr);
+            textMetrics.put(key, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Shows the text with the font. A font collects the glyphs of its subset and caches its encoding while
+     * the text is shown, so text is shown under the lock of the pool even when the stamps are compiled in parallel.
+     * The caller begins and ends the text object.
+     */
+    public synchronized void showText(PDPageContentStream contentStream, PDFont font, float fontSize, String text) throws IOException {
+        contentStream.setFont(font, fontSize);
+        contentStream.showText(text);
+    }
+
+    /**
+     * Returns the font loaded by the provider for the attributes, loading it into the document on the first request
+     */
+    public synchronized PDFont font(FontProvider fontProvider, WatermarkAttributes attr) throws IOException {
+        var key = List.of(fontProvider, fontProvider.fontKey(attr));
+        var font = fonts.get(key);
+        if (font == null) {
+            font = fontProvider.loadFont(document, attr);
+            fonts.put(key, font);
+        }
+        return font;
+    }
+
+    /**
+     * Returns the form XObject that fills the outline of a text, writing it on the first request
+     */
+    public synchronized PDFormXObject outline(TextOutline outline) throws IOException {
+        var form = outlines.get(outline);
+        if (form == null) {
+            form = new PDFormXObject(document);
+            form.setResources(new PDResources());
+            form.setBBox(outline.getBounds());
+            try (var output = form.getStream().createOutputStream(COSName.FLATE_DECODE)) {
+                outline.writeTo(output);
+            }
+            outlines.put(outline, form);
+        }
+        return form;
+    }
+
+    /**
+     * Writes the subsets of the fonts embedded as a subset. PDFBox does that only when the document is saved,
+     * which is too late for pages moved into another document before.
+     */
+    public synchronized void subsetFonts() throws IOException {
+        for (PDFont font : fonts.values()) {
+            if (font.willBeSubset()) {
+                font.subset();
+            }
+        }
+    }
+
+    /**
+     * Returns the stamp for the given key, compiling it on the first request
+     */
+    public PDFormXObject stamp(StampKey key, StampCompiler compiler) throws IOException {
+        CompletableFuture<PDFormXObject> stamp;
+        synchronized (this) {
+            stamp = stamps.get(key);
+        }
+        if (stamp == null) {
+            var compiled = compiler.compile();
+            synchronized (this) {
+                stamps.put(key, CompletableFuture.completedFuture(compiled));
+            }
+            return compiled;
+        }
+        try {
+            return stamp.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the stamp for the given key is compiled or being compiled
+     */
+    public synchronized boolean hasStamp(StampKey key) {
+        return stamps.containsKey(key);
+    }
+
+    /**
+     * Starts compiling the stamp for the given key on the executor, unless it is compiled or being compiled.
+     * {@link #stamp} waits for the result.
+     */
+    public synchronized void compileStamp(StampKey key, StampCompiler compiler, Executor executor) {
+        stamps.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return compiler.compile();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Waits for the stamps being compiled on an executor, ignoring their failures.
+     * The document must not be saved or closed while they write to it.
+     */
+    public void awaitStamps() {
+        List<CompletableFuture<PDFormXObject>> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(stamps.values());
+        }
+        pending.forEach(stamp -> stamp.exceptionally(e -> null).join());
+    }
+
+    /**
+     * Compiles the watermarks of a page geometry into a form XObject
+     */
+    @FunctionalInterface
+    public interface StampCompiler {
+        PDFormXObject compile() throws IOException;
+    }
+}
@@ -0,0 +1,35 @@
+package com.markit.pdf.overlay.resources
+
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+
+/**
+ * The geometry a watermark layout depends on. Real documents have one or two distinct geometries,
+ * so the layout is computed once per geometry and shared by all pages that have it.
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+data class PageGeometry(
+    val mediaBox: Box,
+    val cropBox: Box,
+    val rotation: Int
+) {
+    /**
+     * A page boundary, compared by value (PDRectangle is compared by identity)
+     */
+    data class Box(val lowerLeftX: Float, val lowerLeftY: Float, val width: Float, val height: Float) {
+        fun toRectangle() = PDRectangle(lowerLeftX, lowerLeftY, width, height)
+
+        companion object {
+            @JvmStatic
+            fun of(rectangle: PDRectangle) =
+                Box(rectangle.lowerLeftX, rectangle.lowerLeftY, rectangle.width, rectangle.height)
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        fun of(page: PDPage) = PageGeometry(Box.of(page.mediaBox), Box.of(page.cropBox), page.rotation)
+    }
+}
@@ -0,0 +1,57 @@
+package com.markit.pdf.overlay.resources;
+
+import com.markit.api.WatermarkAttributes;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Identifies a compiled overlay stamp: the same watermarks applied to pages of the same geometry
+ * produce the same stamp.
+ * <p>
+ * Watermark attributes are compared by identity, since they are mutable and may be changed
+ * while the stamp is being compiled.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class StampKey {
+
+    private final List<WatermarkAttributes> attrs;
+    private final PageGeometry geometry;
+
+    public StampKey(List<WatermarkAttributes> attrs, PageGeometry geometry) {
+        this.attrs = List.copyOf(attrs);
+        this.geometry = geometry;
+    }
+
+    public PageGeometry getGeometry() {
+        return geometry;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StampKey)) return false;
+        var other = (StampKey) o;
+        return geometry.equals(other.geometry) && sameAttrs(other.attrs);
+    }
+
+    private boolean sameAttrs(List<WatermarkAttributes> otherAttrs) {
+        if (attrs.size() != otherAttrs.size()) return false;
+        for (int i = 0; i < attrs.size(); i++) {
+            if (attrs.get(i) != otherAttrs.get(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(geometry);
+        for (WatermarkAttributes attr : attrs) {
+            result = 31 * result + System.identityHashCode(attr);
+        }
+        return result;
+    }
+}
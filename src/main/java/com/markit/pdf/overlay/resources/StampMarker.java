@@ -0,0 +1,55 @@
+package com.markit.pdf.overlay.resources;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.util.Calendar;
+
+/**
+ * Marks the overlay stamps, so that the watermark layer of a page can be found again in a saved document.
+ * <p>
+ * The mark is a page-piece dictionary of the application (/PieceInfo), the place the PDF specification
+ * reserves for the private data of a producer on a form XObject.
+ * </p>
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+public final class StampMarker {
+    private static final COSName APPLICATION = COSName.getPDFName("WatermarkIt");
+    private static final COSName STAMP = COSName.getPDFName("Stamp");
+
+    private StampMarker() {
+    }
+
+    public static void mark(PDFormXObject stamp) {
+        var modified = Calendar.getInstance();
+        var data = new COSDictionary();
+        data.setDate(COSName.LAST_MODIFIED, modified);
+        data.setItem(COSName.PRIVATE, STAMP);
+        var pieceInfo = new COSDictionary();
+        pieceInfo.setItem(APPLICATION, data);
+        var dictionary = stamp.getCOSObject();
+        dictionary.setItem(COSName.PIECE_INFO, pieceInfo);
+        dictionary.setDate(COSName.LAST_MODIFIED, modified);
+    }
+
+    /**
+     * @param xObject an entry of the XObject resources of a page
+     */
+    public static boolean isMarked(COSBase xObject) {
+        if (xObject instanceof COSObject) {
+            xObject = ((COSObject) xObject).getObject();
+        }
+        if (!(xObject instanceof COSStream)) {
+            return false;
+        }
+        var pieceInfo = ((COSStream) xObject).getCOSDictionary(COSName.PIECE_INFO);
+        var data = pieceInfo == null ? null : pieceInfo.getCOSDictionary(APPLICATION);
+        return data != null && STAMP.equals(data.getCOSName(COSName.PRIVATE));
+    }
+}
@@ -0,0 +1,26 @@
+package com.markit.pdf.overlay.resources
+
+import com.markit.api.WatermarkAttributes
+import org.apache.pdfbox.pdmodel.font.PDFont
+
+/**
+ * The size of the text of a watermark shown with a font of the document
+ *
+ * @param width the advance width of the text in PDF points
+ * @param height the cap height of the text in PDF points
+ *
+ * @author Oleg Cheban
+ * @since 1.5.0
+ */
+class TextMetrics(val width: Float, val height: Float) {
+    companion object {
+        /**
+         * Measures the text of the watermark shown with the font
+         */
+        @JvmStatic
+        fun of(font: PDFont, attr: WatermarkAttributes) = TextMetrics(
+            font.getStringWidth(attr.text) / 1000f * attr.size / attr.adjustTextSizeCf,
+            font.fontDescriptor.capHeight / 1000f * attr.size / attr.adjustTextSizeCf
+        )
+    }
+}
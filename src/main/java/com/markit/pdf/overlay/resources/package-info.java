@@ -0,0 +1,4 @@
+/**
+ * Document-scoped pools of resources shared by overlay watermarks.
+ */
+package com.markit.pdf.overlay.resources;
@@ -2,6 +2,8 @@ package com.markit.pdf.overlay.trademark;
 
 import com.markit.api.WatermarkAttributes;
 import com.markit.api.positioning.Coordinates;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
+import com.markit.pdf.overlay.resources.TextMetrics;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.util.Matrix;
 
@@ -17,14 +19,32 @@ public class DefaultTrademarkService implements TrademarkService {
 
     @Override
     public void overlayTrademark(PDPageContentStream contentStream, WatermarkAttributes attr, Coordinates c) throws IOException {
-        final int trademarkFontSize = attr.getSize() / 4;
+        var font = DocumentResourcePool.sharedFont(attr);
+        var metrics = TextMetrics.of(font, attr);
+        beginTrademark(contentStream, attr, c, metrics.getWidth(), metrics.getHeight());
+        contentStream.setFont(font, trademarkFontSize(attr));
+        contentStream.showText(TRADEMARK_SYMBOL);
+        contentStream.endText();
+    }
 
+    @Override
+    public void overlayTrademark(DocumentResourcePool resources, PDPageContentStream contentStream,
+                                 WatermarkAttributes attr, Coordinates c) throws IOException {
+        var metrics = resources.textMetrics(attr);
+        beginTrademark(contentStream, attr, c, metrics.getWidth(), metrics.getHeight());
+        resources.showText(contentStream, resources.font(attr), trademarkFontSize(attr), TRADEMARK_SYMBOL);
+        contentStream.endText();
+    }
+
+    private void beginTrademark(PDPageContentStream contentStream, WatermarkAttributes attr, Coordinates c,
+                                float textWidth, float textHeight) throws IOException {
         contentStream.beginText();
-        contentStream.setFont(attr.getResolvedPdfFont(), trademarkFontSize);
         contentStream.setNonStrokingColor(attr.getColor());
-        contentStream.setTextMatrix(setTransformationMatrix(c, attr.getPdfWatermarkTextWidth(), attr.getPdfWatermarkTextHeight(), attr.getRotationDegrees()));
-        contentStream.showText(TRADEMARK_SYMBOL);
-        contentStream.endText();
+        contentStream.setTextMatrix(setTransformationMatrix(c, textWidth, textHeight, attr.getRotationDegrees()));
+    }
+
+    private static int trademarkFontSize(WatermarkAttributes attr) {
+        return attr.getSize() / 4;
     }
 
     private Matrix setTransformationMatrix(Coordinates c, float textWidth, float textHeight, int rotationDegrees) {
@@ -2,6 +2,7 @@ package com.markit.pdf.overlay.trademark;
 
 import com.markit.api.WatermarkAttributes;
 import com.markit.api.positioning.Coordinates;
+import com.markit.pdf.overlay.resources.DocumentResourcePool;
 import com.markit.servicelocator.Prioritizable;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 
@@ -23,4 +24,18 @@ public interface TrademarkService extends Prioritizable {
      * @param c the watermark coordinates
      */
     void overlayTrademark(PDPageContentStream contentStream, WatermarkAttributes attr, Coordinates c) throws IOException;
+
+    /**
+     * Adds a trademark next to a text shown with the font of the document
+     *
+     * @param resources the resources shared by all pages of the document, they hold the font of the text
+     * @param contentStream pdf page content stream
+     * @param attr a trademark has to check watermark attributes such as color, rotation, font, text, and size of text
+     * @param c the watermark coordinates
+     * @since 1.5.0
+     */
+    default void overlayTrademark(DocumentResourcePool resources, PDPageContentStream contentStream,
+                                  WatermarkAttributes attr, Coordinates c) throws IOException {
+        overlayTrademark(contentStream, attr, c);
+    }
 }
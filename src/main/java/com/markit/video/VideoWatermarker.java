@@ -1,5 +1,6 @@
 package com.markit.video;
 
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
 import com.markit.servicelocator.Prioritizable;
 
@@ -17,4 +18,46 @@ public interface VideoWatermarker extends Prioritizable {
     byte[] watermark(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs) throws Exception;
 
     byte[] watermark(File file, List<WatermarkAttributes> attrs) throws Exception;
+
+    /**
+     * Whether the video already carries the same watermarks, as recorded in its metadata when it was watermarked
+     *
+     * @since 1.5.0
+     */
+    default boolean isWatermarked(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs) throws Exception {
+        return false;
+    }
+
+    /**
+     * Whether the video already carries the same watermarks, as recorded in its metadata when it was watermarked
+     *
+     * @since 1.5.0
+     */
+    default boolean isWatermarked(File file, List<WatermarkAttributes> attrs) throws Exception {
+        return false;
+    }
+
+    /**
+     * Adds watermarks to the video and writes the result to the sink
+     *
+     * @since 1.5.0
+     */
+    default void watermark(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs, OutputSink sink) throws Exception {
+        var result = watermark(sourceVideoBytes, attrs);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
+
+    /**
+     * Adds watermarks to the video and writes the result to the sink
+     *
+     * @since 1.5.0
+     */
+    default void watermark(File file, List<WatermarkAttributes> attrs, OutputSink sink) throws Exception {
+        var result = watermark(file, attrs);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.markit.video.ffmpeg;
 
+import com.markit.api.OutputSink;
 import com.markit.servicelocator.Prioritizable;
 import com.markit.video.ffmpeg.filters.FilterResult;
 
@@ -30,4 +31,20 @@ public interface CommandExecutor extends Prioritizable {
      * @throws Exception if execution fails or ffmpeg returns a non-zero exit code
      */
     byte[] execute(File input, FilterResult data) throws Exception;
+
+    /**
+     * Execute the ffmpeg process with the provided filter graph and hand the resulting video over to the sink.
+     *
+     * @param input the input video file to process
+     * @param data the filter graph, last label, and any temporary resources
+     * @param sink the destination of the resulting video
+     * @throws Exception if execution fails or ffmpeg returns a non-zero exit code
+     * @since 1.5.0
+     */
+    default void execute(File input, FilterResult data, OutputSink sink) throws Exception {
+        var result = execute(input, data);
+        try (var output = sink.open()) {
+            output.write(result);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package com.markit.video.ffmpeg;
 
+import com.markit.api.ByteArraySink;
+import com.markit.api.OutputSink;
 import com.markit.video.ffmpeg.filters.FilterResult;
 
 import java.io.BufferedReader;
@@ -23,10 +25,21 @@ public class FFmpegCommandExecutor implements CommandExecutor {
 
     @Override
     public byte[] execute(File input, FilterResult data) throws Exception {
+        var sink = new ByteArraySink();
+        execute(input, data, sink);
+        return sink.toByteArray();
+    }
+
+    /**
+     * ffmpeg writes the video to a temp file, which is then moved or transferred to the sink
+     * instead of being read into the heap.
+     */
+    @Override
+    public void execute(File input, FilterResult data, OutputSink sink) throws Exception {
         File output = Files.createTempFile("wmk-video-out", ".mp4").toFile();
         try {
             runFfmpeg(buildCommand(input, output, data));
-            return Files.readAllBytes(output.toPath());
+            sink.transfer(output.toPath());
         } finally {
             output.delete();
             data.getTempImages().forEach(File::delete);
@@ -54,6 +67,11 @@ public class FFmpegCommandExecutor implements CommandExecutor {
             cmd.add("0:a?");
         }
 
+        if (data.getComment() != null) {
+            cmd.add("-metadata");
+            cmd.add("comment=" + data.getComment());
+        }
+
         cmd.add("-c:v");
         cmd.add(VIDEO_CODEC);
         cmd.add("-preset");
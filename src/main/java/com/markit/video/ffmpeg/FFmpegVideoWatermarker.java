@@ -1,11 +1,15 @@
 package com.markit.video.ffmpeg;
 
+import com.markit.api.ByteArraySink;
+import com.markit.api.OutputSink;
 import com.markit.api.WatermarkAttributes;
+import com.markit.api.WatermarkFingerprint;
 import com.markit.servicelocator.Prioritizable;
 import com.markit.servicelocator.ServiceFactory;
 import com.markit.video.VideoWatermarker;
 import com.markit.video.ffmpeg.filters.FilterChainBuilder;
 import com.markit.video.ffmpeg.filters.FilterResult;
+import com.markit.video.ffmpeg.probes.VideoInfoExtractor;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -20,23 +24,60 @@ public class FFmpegVideoWatermarker implements VideoWatermarker {
 
     @Override
     public byte[] watermark(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs) throws Exception {
+        var sink = new ByteArraySink();
+        watermark(sourceVideoBytes, attrs, sink);
+        return sink.toByteArray();
+    }
+
+    @Override
+    public byte[] watermark(File file, List<WatermarkAttributes> attrs) throws Exception {
+        var sink = new ByteArraySink();
+        watermark(file, attrs, sink);
+        return sink.toByteArray();
+    }
+
+    @Override
+    public void watermark(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs, OutputSink sink) throws Exception {
         File input = Files.createTempFile("wmk-video-src", ".mp4").toFile();
         Files.write(input.toPath(), sourceVideoBytes);
 
         try {
-            return watermark(input, attrs);
+            watermark(input, attrs, sink);
         } finally {
             input.delete();
         }
     }
 
     @Override
-    public byte[] watermark(File file, List<WatermarkAttributes> attrs) throws Exception {
+    public void watermark(File file, List<WatermarkAttributes> attrs, OutputSink sink) throws Exception {
         var executor = (CommandExecutor) ServiceFactory.getInstance().getService(CommandExecutor.class);
         var filterChainBuilder = (FilterChainBuilder) ServiceFactory.getInstance().getService(FilterChainBuilder.class);
 
         FilterResult filter = filterChainBuilder.build(file, attrs);
-        return executor.execute(file, filter);
+        if (WatermarkFingerprint.isRecorded(attrs)) {
+            filter = filter.withComment(WatermarkFingerprint.of(attrs));
+        }
+        executor.execute(file, filter, sink);
+    }
+
+    @Override
+    public boolean isWatermarked(byte[] sourceVideoBytes, List<WatermarkAttributes> attrs) throws Exception {
+        File input = Files.createTempFile("wmk-video-src", ".mp4").toFile();
+        Files.write(input.toPath(), sourceVideoBytes);
+
+        try {
+            return isWatermarked(input, attrs);
+        } finally {
+            input.delete();
+        }
+    }
+
+    /**
+     * The fingerprint is the comment of the container, probed without decoding the video
+     */
+    @Override
+    public boolean isWatermarked(File file, List<WatermarkAttributes> attrs) throws Exception {
+        return WatermarkFingerprint.of(attrs).equals(VideoInfoExtractor.getComment(file));
     }
 
     @Override
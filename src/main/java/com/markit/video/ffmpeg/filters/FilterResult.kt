@@ -8,8 +8,12 @@ import java.io.File
  * @author Oleg Cheban
  * @since 1.4.0
  */
-data class FilterResult(
+data class FilterResult @JvmOverloads constructor(
     val filter: String,
     val lastLabel: String,
-    val tempImages: List<File> = emptyList()
-)
\ No newline at end of file
+    val tempImages: List<File> = emptyList(),
+    /** The comment written to the container metadata of the output, null for none */
+    val comment: String? = null
+) {
+    fun withComment(comment: String) = copy(comment = comment)
+}
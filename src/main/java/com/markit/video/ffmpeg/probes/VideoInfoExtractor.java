@@ -32,6 +32,28 @@ public class VideoInfoExtractor {
         }
     }
 
+    /**
+     * The comment in the metadata of the container, null if there is none
+     *
+     * @since 1.5.0
+     */
+    public static String getComment(File videoFile) throws IOException, InterruptedException {
+        Process process = startFfprobe(videoFile, "format_tags=comment", "default=noprint_wrappers=1:nokey=1");
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+
+            String output = reader.readLine();
+            int exitCode = process.waitFor();
+
+            if (exitCode != 0) {
+                throw new RuntimeException("ffprobe failed with exit code: " + exitCode);
+            }
+
+            return output == null || output.isBlank() ? null : output.trim();
+        }
+    }
+
     private static VideoDimensions parseDimensions(String ffprobeOutput) {
         if (ffprobeOutput != null && !ffprobeOutput.trim().isEmpty()) {
             String[] parts = ffprobeOutput.trim().split(",");
@@ -45,6 +67,10 @@ public class VideoInfoExtractor {
     }
 
     private static Process startFfprobe(File videoFile) throws IOException {
+        return startFfprobe(videoFile, "stream=width,height", "csv=p=0");
+    }
+
+    private static Process startFfprobe(File videoFile, String entries, String format) throws IOException {
         if (!videoFile.exists()) {
             throw new IOException("Video file does not exist: " + videoFile.getAbsolutePath());
         }
@@ -57,8 +83,8 @@ public class VideoInfoExtractor {
                 "ffprobe",
                 "-v", "quiet",
                 "-select_streams", "v:0",
-                "-show_entries", "stream=width,height",
-                "-of", "csv=p=0",
+                "-show_entries", entries,
+                "-of", format,
                 videoFile.getAbsolutePath()
         );
 
@@ -0,0 +1,140 @@
+package com.markit.api
+
+import com.markit.api.builders.DefaultVisualWatermarkBuilder
+import com.markit.utils.FileUtils
+import org.apache.pdfbox.cos.COSArray
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.cos.COSString
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.ByteArrayOutputStream
+import java.io.FilterOutputStream
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import javax.imageio.ImageIO
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
+
+class OutputSinkTest {
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Apply to Path then Watermarked Pdf Is Written to File`() {
+        val target = directory.resolve("result.pdf")
+
+        WatermarkService.create()
+            .watermarkPDF(document())
+                .withText("WaterMarkIt").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply(target)
+
+        PDDocument.load(target.toFile()).use { doc -> assertEquals(2, doc.numberOfPages) }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Apply to Channel then Channel Stays Open`() {
+        val target = directory.resolve("result.pdf")
+
+        FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE).use { channel ->
+            WatermarkService.create()
+                .watermarkPDF(document())
+                    .withText("WaterMarkIt").end()
+                .apply(channel)
+            assertTrue(channel.isOpen)
+        }
+
+        PDDocument.load(target.toFile()).use { doc -> assertEquals(2, doc.numberOfPages) }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Image when Apply to Stream then Stream Stays Open`() {
+        val buffer = ByteArrayOutputStream()
+        var closed = false
+        val output = object : FilterOutputStream(buffer) {
+            override fun close() {
+                closed = true
+            }
+        }
+
+        WatermarkService.create()
+            .watermarkImage(FileUtils.readFileFromClasspathAsBytes("image.JPG"))
+                .withText("WaterMarkIt").end()
+            .apply(output)
+
+        assertFalse(closed)
+        assertNotNull(ImageIO.read(buffer.toByteArray().inputStream()))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Finished File when Transfer to Path Sink then File Is Moved`() {
+        val source = Files.write(directory.resolve("source.bin"), byteArrayOf(1, 2, 3))
+        val target = directory.resolve("target.bin")
+
+        OutputSink.of(target).transfer(source)
+
+        assertFalse(Files.exists(source))
+        assertTrue(byteArrayOf(1, 2, 3).contentEquals(Files.readAllBytes(target)))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Processor Lambda when Apply to Stream then Its Bytes Are Written`() {
+        // Given
+        val processor = WatermarkProcessor { watermarks -> watermarks.joinToString { it.text }.toByteArray() }
+        val builder = DefaultVisualWatermarkBuilder<Any, Any>(processor)
+        val buffer = ByteArrayOutputStream()
+
+        // When
+        builder.withText("WaterMarkIt")
+        builder.apply(buffer)
+
+        // Then
+        assertEquals("WaterMarkIt", buffer.toString())
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Apply to Path and Channel then Output Equals Byte Array Result`() {
+        // Given
+        val source = ByteArrayOutputStream().also { output ->
+            document().use {
+                it.document.trailer.setItem(COSName.ID, COSArray().apply {
+                    repeat(2) { add(COSString("WaterMarkIt")) }
+                })
+                it.save(output)
+            }
+        }.toByteArray()
+        val watermark = { WatermarkService.create().watermarkPDF(source).withText("WaterMarkIt").end() }
+        val pathTarget = directory.resolve("path.pdf")
+        val channelTarget = directory.resolve("channel.pdf")
+
+        // When
+        val expected = watermark().apply()
+        watermark().apply(pathTarget)
+        FileChannel.open(channelTarget, StandardOpenOption.CREATE, StandardOpenOption.WRITE).use { channel ->
+            watermark().apply(channel)
+        }
+
+        // Then
+        assertTrue(expected.contentEquals(Files.readAllBytes(pathTarget)))
+        assertTrue(expected.contentEquals(Files.readAllBytes(channelTarget)))
+    }
+
+    private fun document() = PDDocument().apply {
+        repeat(2) { addPage(PDPage(PDRectangle.A4)) }
+    }
+}
@@ -0,0 +1,18 @@
+package com.markit.image
+
+import com.markit.exceptions.ConvertBufferedImageToBytesException
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.awt.image.BufferedImage
+import java.io.ByteArrayOutputStream
+
+class ImageConverterTest {
+
+    @Test
+    fun `given format without writer when write with comment then throw exception`() {
+        val image = BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB)
+        assertThrows<ConvertBufferedImageToBytesException> {
+            ImageConverter().write(image, "webp", ByteArrayOutputStream(), listOf("WaterMarkIt"))
+        }
+    }
+}
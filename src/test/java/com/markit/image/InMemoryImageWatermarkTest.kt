@@ -0,0 +1,58 @@
+package com.markit.image
+
+import com.markit.api.WatermarkAttributes
+import com.markit.utils.FileUtils
+import org.junit.jupiter.api.Test
+import java.awt.image.BufferedImage
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class InMemoryImageWatermarkTest {
+    private val attrs = listOf(WatermarkAttributes(text = "Confidential", opacity = 100))
+
+    @Test
+    fun `given decoded image when watermark in memory then image is painted in place`() {
+        // Given
+        val image = decodedImage()
+        val original = decodedImage()
+
+        // When
+        val result = DefaultImageWatermarker().watermark(image, attrs)
+
+        // Then
+        assertSame(image, result)
+        assertTrue(differs(original, result), "The watermark should be drawn on the image")
+    }
+
+    @Test
+    fun `given watermarker of encoded images only when watermark in memory then the same pixels are painted`() {
+        // Given
+        val encodedOnly = object : ImageWatermarker {
+            private val delegate = DefaultImageWatermarker()
+            override fun watermark(sourceImageBytes: ByteArray, attrs: List<WatermarkAttributes>) =
+                delegate.watermark(sourceImageBytes, attrs)
+            override fun watermark(file: File, attrs: List<WatermarkAttributes>) = delegate.watermark(file, attrs)
+            override fun getPriority() = 0
+        }
+
+        // When
+        val expected = DefaultImageWatermarker().watermark(decodedImage(), attrs)
+        val result = encodedOnly.watermark(decodedImage(), attrs)
+
+        // Then
+        assertEquals(expected.width, result.width)
+        assertTrue(!differs(expected, result), "The default method should paint what the encoded path paints")
+    }
+
+    private fun decodedImage(): BufferedImage {
+        val source = ImageConverter().convertToBufferedImage(FileUtils.readFileFromClasspathAsBytes("logo.png"))
+        return BufferedImage(source.width, source.height, BufferedImage.TYPE_INT_RGB).apply {
+            createGraphics().apply { drawImage(source, 0, 0, null); dispose() }
+        }
+    }
+
+    private fun differs(first: BufferedImage, second: BufferedImage) =
+        (0 until first.width).any { x -> (0 until first.height).any { y -> first.getRGB(x, y) != second.getRGB(x, y) } }
+}
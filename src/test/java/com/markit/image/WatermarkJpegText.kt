@@ -2,9 +2,12 @@ package com.markit.image
 
 import com.markit.utils.FileUtils
 import com.markit.api.positioning.WatermarkPosition
+import com.markit.api.WatermarkFingerprint
 import com.markit.api.WatermarkService
 import org.junit.jupiter.api.Test
 import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
 import kotlin.test.assertNotNull
 import kotlin.test.assertTrue
 
@@ -24,4 +27,82 @@ class WatermarkJpegText {
         assertNotNull(result, "The resulting byte array should not be null")
         assertTrue(result.isNotEmpty(), "The resulting byte array should not be empty")
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `given jpeg file when apply text watermark to image then return decoded watermarked image`() {
+        // Given
+        val source = FileUtils.readFileFromClasspathAsBytes("image.JPG")
+        val original = ImageConverter().convertToBufferedImage(source)
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkImage(source)
+                .withText("Confidential").end()
+                .opacity(100)
+            .applyToImage()
+
+        // Then
+        assertEquals(original.width, result.width)
+        assertEquals(original.height, result.height)
+        assertTrue((0 until result.width step 4).any { x ->
+            (0 until result.height step 4).any { y -> result.getRGB(x, y) != original.getRGB(x, y) }
+        }, "The watermark should be drawn on the image")
+    }
+
+    @Test
+    fun `given watermarked jpeg file when apply the same watermark then return the file unchanged`() {
+        // Given
+        val watermarked = WatermarkService.create()
+            .watermarkImage(FileUtils.readFileFromClasspathAsBytes("image.JPG"))
+                .withText("Confidential").end()
+                .skipIfAlreadyWatermarked()
+            .apply()
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkImage(watermarked)
+                .withText("Confidential").end()
+                .skipIfAlreadyWatermarked()
+            .apply()
+
+        // Then
+        assertTrue(watermarked.contentEquals(result), "The watermarked file should be returned as it is")
+        assertFalse(watermarked.contentEquals(WatermarkService.create()
+            .watermarkImage(watermarked)
+                .withText("Final").end()
+                .skipIfAlreadyWatermarked()
+            .apply()))
+    }
+
+    @Test
+    fun `given jpeg file when apply watermark without skipping then no fingerprint is written`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkImage(FileUtils.readFileFromClasspathAsBytes("image.JPG"))
+                .withText("Confidential").end()
+            .apply()
+
+        // Then
+        assertTrue(ImageConverter().readComments(result).none { WatermarkFingerprint.isFingerprint(it) })
+    }
+
+    @Test
+    fun `given jpeg file with comment when record fingerprint then the comment is kept`() {
+        // Given
+        val converter = ImageConverter()
+        val commented = converter.convertToByteArray(
+            converter.convertToBufferedImage(FileUtils.readFileFromClasspathAsBytes("image.JPG")), "jpeg", listOf("Scanned"))
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkImage(commented)
+                .withText("Confidential").end()
+                .skipIfAlreadyWatermarked()
+            .apply()
+
+        // Then
+        val comments = converter.readComments(result)
+        assertTrue("Scanned" in comments, "The comment of the source image should be kept")
+        assertEquals(1, comments.count { WatermarkFingerprint.isFingerprint(it) })
+    }
+}
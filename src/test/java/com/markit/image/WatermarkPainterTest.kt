@@ -0,0 +1,33 @@
+package com.markit.image
+
+import com.markit.api.WatermarkAttributes
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.awt.Graphics2D
+import java.awt.image.BufferedImage
+import kotlin.test.assertEquals
+
+class WatermarkPainterTest {
+
+    @Test
+    fun `given Painter of Source Images only when Draw on Size then It Paints with Image of That Size`() {
+        // Given
+        val legacy = object : TextBasedWatermarkPainter {
+            override fun draw(g2d: Graphics2D, sourceImage: BufferedImage, attr: WatermarkAttributes) {
+                g2d.color = Color.RED
+                g2d.fillRect(0, 0, sourceImage.width, sourceImage.height)
+            }
+            override fun getPriority() = 0
+        }
+        val image = BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB)
+
+        // When
+        val g2d = image.createGraphics()
+        legacy.draw(g2d, 20, 10, WatermarkAttributes(text = "WaterMarkIt"))
+        g2d.dispose()
+
+        // Then
+        assertEquals(Color.RED.rgb, image.getRGB(19, 9))
+        assertEquals(Color.BLACK.rgb, image.getRGB(20, 10))
+    }
+}
@@ -0,0 +1,79 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.font.PDType1Font
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.image.BufferedImage
+import java.io.IOException
+import kotlin.test.assertEquals
+
+class AdaptiveDpiDrawWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            // a 4 x 4 inch scan at 100 DPI
+            val scan = PDPage(PDRectangle(288f, 288f)).also { addPage(it) }
+            val image = LosslessFactory.createFromImage(this, BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB))
+            PDPageContentStream(this, scan).use { it.drawImage(image, 0f, 0f, 288f, 288f) }
+
+            val vector = PDPage(PDRectangle(288f, 288f)).also { addPage(it) }
+            PDPageContentStream(this, vector).use {
+                it.beginText()
+                it.setFont(PDType1Font.HELVETICA, 12f)
+                it.showText("Vector")
+                it.endText()
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Scanned and Vector Pages when Draw with Adaptive Dpi then Scan Keeps Its Resolution`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(150)
+                .adaptiveDpi()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(400, rasterWidth(doc.getPage(0)))
+            assertEquals(600, rasterWidth(doc.getPage(1)))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Scanned Page when Draw with Adaptive Dpi Range then Resolution Is Clamped`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.DRAW)
+                .pageFilter { it == 0 }
+                .adaptiveDpi(144, 300)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(576, rasterWidth(doc.getPage(0)))
+        }
+    }
+
+    // the raster is the only JPEG on the page, the original resources are kept
+    private fun rasterWidth(page: PDPage): Int =
+        page.resources.xObjectNames.map { page.resources.getXObject(it) }
+            .filterIsInstance<PDImageXObject>()
+            .single { it.suffix == "jpg" }.width
+}
@@ -0,0 +1,56 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.text.PDFTextStripper
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ApplyToDocumentTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            addPage(PDPage(PDRectangle.A4))
+            addPage(PDPage(PDRectangle.A4))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Caller Owned Pdf when Apply to Document then Watermarked Document Stays Open`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document, false)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .applyToDocument()
+
+        // Then
+        assertSame(document, result)
+        assertTrue(PDFTextStripper().getText(result).contains("Confidential"))
+        // still open, so the caller can go on and save it
+        result.save(ByteArrayOutputStream())
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Caller Owned Pdf when Apply then Document Is Not Closed`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document, false)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply()
+
+        // Then
+        assertTrue(validateWatermarkText(result, "Confidential"))
+        assertTrue(PDFTextStripper().getText(document).contains("Confidential"))
+    }
+}
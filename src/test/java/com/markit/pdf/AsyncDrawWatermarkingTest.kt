@@ -0,0 +1,56 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.positioning.WatermarkPosition
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.IOException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class AsyncDrawWatermarkingTest : WatermarkPdfTest() {
+    private val pageCount = 24
+    private lateinit var executor: ExecutorService
+
+    @BeforeEach
+    override fun initDocument() {
+        executor = Executors.newFixedThreadPool(4)
+        document = PDDocument().apply {
+            repeat(pageCount) { addPage(PDPage(PDRectangle.A4)) }
+        }
+    }
+
+    @AfterEach
+    fun shutdownExecutor() {
+        executor.shutdown()
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Multi-Page Pdf when Draw Method with Executor then Every Page Is Watermarked`() {
+        // When
+        val result = WatermarkService.create(executor)
+            .watermarkPDF(document)
+                .withText("WaterMarkIt").end()
+                .position(WatermarkPosition.TILED).end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(pageCount, doc.numberOfPages)
+            assertTrue(doc.pages.all { page ->
+                page.resources.xObjectNames.any { page.resources.getXObject(it) is PDImageXObject }
+            }, "Every page should be replaced with a watermarked image")
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.image.ImageConverter
+import com.markit.utils.FileUtils
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary
+import org.apache.pdfbox.pdmodel.PDEmbeddedFilesNameTreeNode
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy
+import org.apache.pdfbox.text.PDFTextStripper
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.util.concurrent.Executors
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class AttachmentWatermarkTest : WatermarkPdfTest() {
+    private val logo = FileUtils.readFileFromClasspathAsBytes("logo.png")!!
+    private val notes = "not a watermarkable file".toByteArray()
+
+    @BeforeEach
+    override fun initDocument() {
+        val attachedPdf = PDDocument().use { doc ->
+            doc.addPage(PDPage(PDRectangle.A4))
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+        document = PDDocument().apply {
+            addPage(PDPage(PDRectangle.A4))
+            val files = PDEmbeddedFilesNameTreeNode()
+            files.names = mapOf(
+                "contract.pdf" to specification(this, "contract.pdf", attachedPdf, "application/pdf"),
+                "logo.png" to specification(this, "logo.png", logo, "image/png"),
+                "notes.txt" to specification(this, "notes.txt", notes, "text/plain")
+            )
+            documentCatalog.names = PDDocumentNameDictionary(documentCatalog).apply { embeddedFiles = files }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Attachments when Watermark Attachments then Attached Pdfs and Images Are Watermarked`() {
+        // Given
+        val executor = Executors.newFixedThreadPool(4)
+
+        // When
+        val result = try {
+            WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withText("CONFIDENTIAL").end()
+                    .method(WatermarkingMethod.OVERLAY)
+                    .watermarkAttachments()
+                .apply()
+        } finally {
+            executor.shutdown()
+        }
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val files = doc.documentCatalog.names.embeddedFiles.names
+            assertEquals(setOf("contract.pdf", "logo.png", "notes.txt"), files.keys)
+            PDDocument.load(attached(files.getValue("contract.pdf"))).use {
+                assertTrue(PDFTextStripper().getText(it).contains("CONFIDENTIAL"))
+            }
+            val image = attached(files.getValue("logo.png"))
+            assertFalse(image.contentEquals(logo))
+            assertTrue(ImageConverter().readComments(image).isEmpty(), "No fingerprint is recorded unless asked for")
+            assertEquals("image/png", files.getValue("logo.png").embeddedFile.subtype)
+            assertTrue(attached(files.getValue("notes.txt")).contentEquals(notes))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Encrypted Attachment when Watermark Attachments then Encrypted Attachment Is Left as It Is`() {
+        // Given
+        val encryptedPdf = PDDocument().use { doc ->
+            doc.addPage(PDPage(PDRectangle.A4))
+            doc.protect(StandardProtectionPolicy("owner", "user", AccessPermission()))
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+        val files = document.documentCatalog.names.embeddedFiles
+        files.names = files.names + ("secret.pdf" to specification(document, "secret.pdf", encryptedPdf, "application/pdf"))
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("CONFIDENTIAL").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .watermarkAttachments()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val attachedFiles = doc.documentCatalog.names.embeddedFiles.names
+            assertTrue(attached(attachedFiles.getValue("secret.pdf")).contentEquals(encryptedPdf))
+            PDDocument.load(attached(attachedFiles.getValue("contract.pdf"))).use {
+                assertTrue(PDFTextStripper().getText(it).contains("CONFIDENTIAL"))
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with More Attachments than in Flight when Watermark Attachments then All Are Watermarked`() {
+        // Given
+        val names = (1..Runtime.getRuntime().availableProcessors() * 2 + 3).map { "logo$it.png" }
+        val files = document.documentCatalog.names.embeddedFiles
+        files.names = files.names + names.associateWith { specification(document, it, logo, "image/png") }
+        val executor = Executors.newFixedThreadPool(2)
+
+        // When
+        val result = try {
+            WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withText("CONFIDENTIAL").end()
+                    .method(WatermarkingMethod.OVERLAY)
+                    .watermarkAttachments()
+                .apply()
+        } finally {
+            executor.shutdown()
+        }
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val attachedFiles = doc.documentCatalog.names.embeddedFiles.names
+            names.forEach { assertFalse(attached(attachedFiles.getValue(it)).contentEquals(logo), "$it should be watermarked") }
+            assertTrue(attached(attachedFiles.getValue("notes.txt")).contentEquals(notes))
+        }
+    }
+
+    private fun specification(doc: PDDocument, name: String, bytes: ByteArray, type: String) =
+        PDComplexFileSpecification().apply {
+            file = name
+            embeddedFile = PDEmbeddedFile(doc, ByteArrayInputStream(bytes)).apply {
+                subtype = type
+                size = bytes.size
+            }
+        }
+
+    private fun attached(specification: PDComplexFileSpecification): ByteArray =
+        specification.embeddedFile.createInputStream().use { it.readAllBytes() }
+}
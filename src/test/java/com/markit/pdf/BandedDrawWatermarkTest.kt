@@ -0,0 +1,91 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.positioning.WatermarkPosition
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.apache.pdfbox.rendering.PDFRenderer
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.awt.image.BufferedImage
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class BandedDrawWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            // 25 megapixels at 72 DPI, more than a single band holds
+            addPage(PDPage(PDRectangle(5000f, 5000f)))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Large Page when Draw then Page Is Rendered in Bands`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential")
+                    .color(Color.RED).end()
+                .position(WatermarkPosition.TILED).end()
+                .size(200)
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val resources = doc.getPage(0).resources
+            val bands = resources.xObjectNames.map { resources.getXObject(it) }.filterIsInstance<PDImageXObject>()
+            assertTrue(bands.size > 1)
+            assertTrue(bands.all { it.width == 5000 })
+            assertEquals(5000, bands.sumOf { it.height })
+
+            val image = PDFRenderer(doc).renderImageWithDPI(0, 9f)
+            assertTrue(hasRedPixels(image, 0 until image.height / 2), "The top band should be watermarked")
+            assertTrue(hasRedPixels(image, image.height / 2 until image.height), "The bottom band should be watermarked")
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Huge Page when Draw then Number of Bands Is Bounded`() {
+        // Given
+        document.close()
+        document = PDDocument().apply {
+            // 200 megapixels at 72 DPI, the largest page PDF allows
+            addPage(PDPage(PDRectangle(14400f, 14400f)))
+        }
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential")
+                    .color(Color.BLACK).end()
+                .size(200)
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val resources = doc.getPage(0).resources
+            val bands = resources.xObjectNames.map { resources.getXObject(it) }.filterIsInstance<PDImageXObject>()
+            assertEquals(8, bands.size)
+            assertEquals(14400, bands.sumOf { it.height })
+        }
+    }
+
+    private fun hasRedPixels(image: BufferedImage, rows: IntRange) = rows.any { y ->
+        (0 until image.width).any { x ->
+            val color = Color(image.getRGB(x, y))
+            color.red - color.blue > 50
+        }
+    }
+}
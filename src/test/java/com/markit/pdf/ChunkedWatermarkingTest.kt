@@ -0,0 +1,110 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem
+import org.apache.pdfbox.text.PDFTextStripper
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.IOException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ChunkedWatermarkingTest : WatermarkPdfTest() {
+    private lateinit var executor: ExecutorService
+
+    @BeforeEach
+    override fun initDocument() {
+        executor = Executors.newFixedThreadPool(2)
+        document = PDDocument().apply {
+            repeat(10) { addPage(PDPage(PDRectangle.A4)) }
+            val item = PDOutlineItem().apply {
+                title = "Page 8"
+                destination = PDPageFitDestination().apply { page = getPage(7) }
+            }
+            documentCatalog.documentOutline = PDDocumentOutline().apply { addLast(item) }
+            documentInformation.title = "Chunked"
+        }
+    }
+
+    @AfterEach
+    fun shutdownExecutor() {
+        executor.shutdown()
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Outline when Overlay in Chunks then Pages Are Watermarked and Outline Is Kept`() {
+        // When
+        val result = WatermarkService.create(executor)
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .pageFilter { it != 4 }
+                .chunked(3, 2)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(10, doc.numberOfPages)
+            (0 until 10).forEach { index ->
+                assertEquals(index != 4, pageText(doc, index).contains("Confidential"), "Page $index")
+            }
+            val item = doc.documentCatalog.documentOutline.firstChild
+            assertEquals("Page 8", item.title)
+            assertEquals(7, doc.pages.indexOf(item.findDestinationPage(doc)))
+            assertEquals("Chunked", doc.documentInformation.title)
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Cyrillic Overlay in Chunks then Every Chunk Embeds Its Font Subset`() {
+        // When
+        val result = WatermarkService.create(executor)
+            .watermarkPDF(document)
+                .withText("Конфиденциально").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .chunked(4)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            (0 until 10).forEach { index ->
+                assertTrue(pageText(doc, index).contains("Конфиденциально"), "Page $index")
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Chunked without Executor then Document Is Watermarked as a Whole`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .chunked(3)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertFalse((0 until 10).any { !pageText(doc, it).contains("Confidential") })
+        }
+    }
+
+    private fun pageText(doc: PDDocument, index: Int): String =
+        PDFTextStripper().apply {
+            startPage = index + 1
+            endPage = index + 1
+        }.getText(doc)
+}
@@ -0,0 +1,91 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.font.PDType1Font
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.apache.pdfbox.rendering.PDFRenderer
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class ColorAwareDrawWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            val text = PDPage(PDRectangle.A6).also { addPage(it) }
+            PDPageContentStream(this, text).use {
+                it.beginText()
+                it.setFont(PDType1Font.HELVETICA, 12f)
+                it.newLineAtOffset(20f, 20f)
+                it.showText("Invoice")
+                it.endText()
+            }
+
+            val colored = PDPage(PDRectangle.A6).also { addPage(it) }
+            PDPageContentStream(this, colored).use {
+                it.setNonStrokingColor(Color.RED)
+                it.addRect(20f, 20f, 50f, 50f)
+                it.fill()
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Black Text Page when Draw Opaque Black Watermark then Page Is Black and White`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .opacity(100)
+                .method(WatermarkingMethod.DRAW)
+                .pageFilter { it == 0 }
+                .dpi(150)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val raster = raster(doc.getPage(0))
+            assertEquals(listOf(COSName.CCITTFAX_DECODE), raster.stream.filters)
+            assertEquals(1, raster.bitsPerComponent)
+            val image = PDFRenderer(doc).renderImageWithDPI(0, 36f)
+            val middle = image.height / 3 until image.height * 2 / 3
+            assertTrue((0 until image.width).any { x -> middle.any { y -> image.getRGB(x, y) == Color.BLACK.rgb } },
+                "The watermark should be painted in the middle of the page")
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pages when Draw Translucent Watermark then Colors Follow the Page`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(PDDeviceGray.INSTANCE, raster(doc.getPage(0)).colorSpace)
+            assertEquals(PDDeviceRGB.INSTANCE, raster(doc.getPage(1)).colorSpace)
+        }
+    }
+
+    private fun raster(page: PDPage): PDImageXObject =
+        page.resources.xObjectNames.map { page.resources.getXObject(it) }
+            .filterIsInstance<PDImageXObject>()
+            .single()
+}
@@ -13,6 +13,7 @@ import java.awt.Color
 import java.io.IOException
 import java.time.LocalDateTime
 import java.util.concurrent.Executors
+import kotlin.test.assertEquals
 import kotlin.test.assertTrue
 import kotlin.test.assertNotNull
 
@@ -69,4 +70,28 @@ class ComplexWatermarkingTest : WatermarkPdfTest() {
         assertTrue(validatePageCount(result, 3));
         assertTrue(validateImageContent(result));
     }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Multi-Page Pdf when Apply Draw and Overlay Watermarks then Page Filter Is Evaluated Once per Page`() {
+        val evaluatedPages = mutableListOf<Int>()
+
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("WaterMarkIt").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .pageFilter { evaluatedPages.add(it); it != 1 }
+            .and()
+                .withText("Draft").end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+                .pageFilter { it == 1 }
+            .apply()
+
+        assertEquals(listOf(0, 1, 2), evaluatedPages)
+        assertTrue(validatePageCount(result, 3))
+        PDDocument.load(result).use { doc ->
+            assertTrue(doc.getPage(1).resources.xObjectNames.any { doc.getPage(1).resources.isImageXObject(it) })
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.image.BufferedImage
+import java.io.IOException
+import java.util.Random
+import kotlin.test.assertTrue
+
+class DrawByteBudgetTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        // colored noise, which compresses badly
+        val random = Random(42)
+        val noise = BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB).apply {
+            for (x in 0 until width) for (y in 0 until height) setRGB(x, y, random.nextInt(0xFFFFFF))
+        }
+        document = PDDocument().apply {
+            val image = LosslessFactory.createFromImage(this, noise)
+            repeat(2) {
+                val page = PDPage(PDRectangle.A6).also { addPage(it) }
+                PDPageContentStream(this, page).use { it.drawImage(image, 0f, 0f, page.mediaBox.width, page.mediaBox.height) }
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Noisy Page when Draw with Page Byte Budget then Raster Fits the Budget`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(200)
+                .pageByteBudget(40_000)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            doc.pages.forEach { page ->
+                val size = rasterSize(page)
+                assertTrue(size <= 40_000, "The raster takes $size bytes")
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Noisy Pages when Draw with Document Byte Budget then Rasters Share the Budget`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(200)
+                .documentByteBudget(100_000)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val size = doc.pages.sumOf { rasterSize(it) }
+            assertTrue(size <= 100_000, "The rasters take $size bytes")
+        }
+    }
+
+    // the raster is the only JPEG on the page, the original resources are kept
+    private fun rasterSize(page: PDPage): Long =
+        page.resources.xObjectNames.map { page.resources.getXObject(it) }
+            .filterIsInstance<PDImageXObject>()
+            .single { it.cosObject.getCOSName(COSName.FILTER) == COSName.DCT_DECODE }
+            .cosObject.length
+}
@@ -0,0 +1,77 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.font.PDType1Font
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.awt.image.BufferedImage
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class EmbeddedImageWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument()
+        val scan = BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB).apply {
+            createGraphics().run {
+                color = Color.WHITE
+                fillRect(0, 0, width, height)
+                dispose()
+            }
+        }
+        val image = JPEGFactory.createFromImage(document, scan)
+        repeat(2) {
+            val page = PDPage(PDRectangle.A4)
+            document.addPage(page)
+            PDPageContentStream(document, page).use { contentStream ->
+                contentStream.drawImage(image, 0f, 0f, PDRectangle.A4.width, PDRectangle.A4.height)
+                contentStream.beginText()
+                contentStream.setFont(PDType1Font.HELVETICA, 12f)
+                contentStream.newLineAtOffset(50f, 50f)
+                contentStream.showText("Page text")
+                contentStream.endText()
+            }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Scanned Pdf when Embedded Images Method then Shared Image Is Watermarked Once at Native Resolution`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential")
+                    .color(Color.RED).end()
+                .method(WatermarkingMethod.EMBEDDED_IMAGES)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val images = doc.pages.map { page ->
+                page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDImageXObject>().single()
+            }
+            assertSame(images[0].cosObject, images[1].cosObject, "The shared image should be watermarked once")
+            assertEquals(800, images[0].width)
+            assertEquals(600, images[0].height)
+            assertEquals(COSName.DCT_DECODE, images[0].cosObject.filters)
+
+            val pixels = images[0].image
+            assertTrue((0 until pixels.width).any { x ->
+                (0 until pixels.height).any { y -> Color(pixels.getRGB(x, y)).let { it.red - it.blue > 50 } }
+            }, "The image should be watermarked")
+        }
+        assertTrue(validateWatermarkText(result, "Page text"), "The page text should be kept")
+        assertTrue(!validateWatermarkText(result, "Confidential"), "The watermark should not be added as text")
+    }
+}
@@ -0,0 +1,91 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkAttributes
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.pdf.overlay.font.DefaultFontProvider
+import com.markit.pdf.overlay.font.FontCache
+import com.markit.pdf.overlay.font.FontFallbackChain
+import com.markit.pdf.overlay.resources.DocumentResourcePool
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.junit.jupiter.api.Assumptions.assumeTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class FontFallbackTest : WatermarkPdfTest() {
+    private val dejaVuSans = Path.of("/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf")
+
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            addPage(PDPage(PDRectangle.A4))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Two Documents when Cyrillic Overlay then Font Is Parsed Once`() {
+        // Given
+        val font = FontFallbackChain().select("Конфиденциально")
+
+        // When
+        val results = (1..2).map {
+            PDDocument().use { doc ->
+                doc.addPage(PDPage(PDRectangle.A4))
+                WatermarkService.create()
+                    .watermarkPDF(doc)
+                        .withText("Конфиденциально").end()
+                        .method(WatermarkingMethod.OVERLAY)
+                    .apply()
+            }
+        }
+
+        // Then
+        assertSame(font, FontCache.classpath("font/a3arialrusnormal.ttf"))
+        assertTrue(results.all { validateWatermarkText(it, "Конфиденциально") })
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Provider with Fallback Font when Greek and Hebrew Overlay then Text Is Shown with It`() {
+        // Given
+        assumeTrue(Files.exists(dejaVuSans), "DejaVu Sans is not installed")
+        val fontProvider = DefaultFontProvider(FontFallbackChain().add(dejaVuSans))
+        val resources = DocumentResourcePool(document)
+
+        // When
+        PDPageContentStream(document, document.getPage(0)).use { contentStream ->
+            listOf("ΑΠΟΡΡΗΤΟ", "סודי").forEachIndexed { i, text ->
+                contentStream.beginText()
+                contentStream.setFont(resources.font(fontProvider, WatermarkAttributes(text = text)), 24f)
+                contentStream.newLineAtOffset(100f, 700f - 50f * i)
+                contentStream.showText(text)
+                contentStream.endText()
+            }
+        }
+        val result = ByteArrayOutputStream().also { document.save(it) }.toByteArray()
+
+        // Then
+        assertSame(FontCache.file(dejaVuSans), fontProvider.fontKey(WatermarkAttributes(text = "ΑΠΟΡΡΗΤΟ")))
+        assertTrue(validateWatermarkText(result, "ΑΠΟΡΡΗΤΟ"))
+    }
+
+    @Test
+    fun `given Font Added to Another Chain when Select Greek Text then New Chain Has No Font for It`() {
+        // Given
+        FontFallbackChain().add(dejaVuSans)
+
+        // When & Then
+        assertThrows<IOException> { FontFallbackChain().select("ΑΠΟΡΡΗΤΟ") }
+    }
+}
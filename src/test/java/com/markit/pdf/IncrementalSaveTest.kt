@@ -0,0 +1,77 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.util.concurrent.Executors
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class IncrementalSaveTest : WatermarkPdfTest() {
+    private lateinit var original: ByteArray
+
+    @BeforeEach
+    override fun initDocument() {
+        original = PDDocument().use { doc ->
+            repeat(3) { doc.addPage(PDPage(PDRectangle.A4)) }
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+        document = PDDocument.load(original)
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Loaded Pdf when Overlay with Incremental Save then Original Bytes Are Kept`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("WaterMarkIt").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .pageFilter { it != 1 }
+                .incrementalSave()
+            .apply()
+
+        // Then
+        assertTrue(result.size > original.size)
+        assertTrue(original.contentEquals(result.copyOf(original.size)), "The original file should be a prefix of the result")
+        PDDocument.load(result).use { doc ->
+            assertEquals(3, doc.numberOfPages)
+            assertTrue(doc.getPage(0).resources.xObjectNames.any())
+            assertTrue(doc.getPage(1).resources?.xObjectNames?.none() ?: true)
+        }
+        assertTrue(validateWatermarkText(result, "WaterMarkIt"))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Loaded Pdf when Draw with Executor and Incremental Save then Original Bytes Are Kept`() {
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            // When
+            val result = WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withText("WaterMarkIt").end()
+                    .method(WatermarkingMethod.DRAW)
+                    .dpi(72)
+                    .incrementalSave()
+                .apply()
+
+            // Then
+            assertTrue(original.contentEquals(result.copyOf(original.size)), "The original file should be a prefix of the result")
+            PDDocument.load(result).use { doc ->
+                assertTrue(doc.pages.all { page ->
+                    page.resources.xObjectNames.any { page.resources.getXObject(it) is PDImageXObject }
+                })
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
+}
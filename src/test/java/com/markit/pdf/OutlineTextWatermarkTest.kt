@@ -0,0 +1,79 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkAttributes
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.positioning.WatermarkPosition
+import com.markit.pdf.overlay.font.TextOutlines
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject
+import org.apache.pdfbox.rendering.PDFRenderer
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class OutlineTextWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            repeat(2) { addPage(PDPage(PDRectangle.A4)) }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Cyrillic Outline Text then No Font Is Embedded`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("СЕКРЕТНО").addTrademark().end()
+                .position(WatermarkPosition.TILED).end()
+                .size(30)
+                .rotation(30)
+                .method(WatermarkingMethod.OVERLAY)
+                .outlineText()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val stamps = doc.pages.map { stamp(it) }
+            assertEquals(1, stamps.map { it.cosObject }.distinct().size, "The pages should share the stamp")
+            val forms = stamps.first().resources.xObjectNames.map { stamps.first().resources.getXObject(it) }
+            assertEquals(2, forms.size, "The text and the trademark should be drawn from one form each")
+            assertTrue(forms.all { it is PDFormXObject && it.resources.fontNames.none() })
+            assertTrue(doc.pages.all { it.resources.fontNames.none() && stamp(it).resources.fontNames.none() })
+            assertTrue(hasWatermarkPixels(doc), "The outlines should be painted on the page")
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Two Documents when Same Outline Text then Outline Is Shared`() {
+        // Given
+        val attr = { WatermarkAttributes(text = "CONFIDENTIAL", outlineText = true) }
+
+        // When
+        val first = TextOutlines.of(attr())
+        val second = TextOutlines.of(attr())
+
+        // Then
+        assertSame(first, second)
+        assertTrue(first.width > 0 && first.height > 0)
+    }
+
+    private fun stamp(page: PDPage): PDFormXObject =
+        page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDFormXObject>().single()
+
+    private fun hasWatermarkPixels(doc: PDDocument): Boolean {
+        val image = PDFRenderer(doc).renderImageWithDPI(0, 36f)
+        return (0 until image.width).any { x ->
+            (0 until image.height).any { y -> image.getRGB(x, y) != Color.WHITE.rgb }
+        }
+    }
+}
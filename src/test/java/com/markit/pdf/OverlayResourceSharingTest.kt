@@ -0,0 +1,259 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkAttributes
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.positioning.WatermarkPosition
+import com.markit.pdf.overlay.DefaultOverlayPdfWatermarker
+import com.markit.pdf.overlay.OverlayPdfWatermarker
+import com.markit.pdf.overlay.resources.DocumentResourcePool
+import com.markit.pdf.overlay.resources.StampMarker
+import com.markit.utils.FileUtils
+import org.apache.pdfbox.cos.COSBase
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDResources
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.font.PDType1Font
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+
+class OverlayResourceSharingTest : WatermarkPdfTest() {
+    private val pageCount = 10
+
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            repeat(pageCount) { addPage(PDPage(PDRectangle.A4)) }
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Multi-Page Pdf when Overlay Image Watermark then Image Is Embedded Once`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withImage(FileUtils.readFileFromClasspathAsBytes("logo.png"))
+                .position(WatermarkPosition.CENTER).end()
+                .method(WatermarkingMethod.OVERLAY)
+                .opacity(30)
+            .and()
+                .withText("Водяной знак").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            assertEquals(pageCount, doc.numberOfPages)
+            val images = doc.pages.flatMap { imageObjects(it.resources) }.toSet()
+            assertEquals(1, images.size, "The watermark image should be shared by all pages")
+        }
+        assertEquals(true, validateWatermarkText(result, "Водяной знак"))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Multi-Page Pdf when Overlay Tiled Text then Pages Share One Stamp`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("WaterMarkIt").end()
+                .position(WatermarkPosition.TILED).end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val stamps = doc.pages.flatMap { page ->
+                page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDFormXObject>()
+            }
+            assertEquals(pageCount, stamps.size)
+            assertEquals(1, stamps.map { it.cosObject }.toSet().size, "All pages should reference the same stamp")
+        }
+        assertEquals(true, validateWatermarkText(result, "WaterMarkIt"))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Two Page Geometries when Overlay Text then One Stamp per Geometry`() {
+        // Given
+        repeat(pageCount) { document.addPage(PDPage(PDRectangle(PDRectangle.A4.height, PDRectangle.A4.width))) }
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("WaterMarkIt").end()
+                .position(WatermarkPosition.TILED).end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val stamps = doc.pages.map { page ->
+                page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDFormXObject>().single()
+            }
+            assertEquals(2, stamps.map { it.cosObject }.toSet().size, "Pages of the same geometry should share a stamp")
+            assertEquals(PDRectangle.A4.width, stamps.first().bBox.width)
+            assertEquals(PDRectangle.A4.height, stamps.last().bBox.width)
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Two Page Geometries when Overlay with Executor then Each Stamp Is Compiled on Executor`() {
+        // Given
+        repeat(pageCount) { document.addPage(PDPage(PDRectangle(PDRectangle.A4.height, PDRectangle.A4.width))) }
+        val pool = Executors.newFixedThreadPool(2)
+        val submitted = AtomicInteger()
+        val executor = Executor { submitted.incrementAndGet(); pool.execute(it) }
+
+        try {
+            // When
+            val result = WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withImage(FileUtils.readFileFromClasspathAsBytes("logo.png"))
+                    .position(WatermarkPosition.TILED).end()
+                    .method(WatermarkingMethod.OVERLAY)
+                .and()
+                    .withText("WaterMarkIt").end()
+                    .position(WatermarkPosition.TILED).end()
+                    .method(WatermarkingMethod.OVERLAY)
+                    .outlineText()
+                .apply()
+
+            // Then
+            assertEquals(2, submitted.get())
+            PDDocument.load(result).use { doc ->
+                val stamps = doc.pages.map { page ->
+                    page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDFormXObject>().single()
+                }
+                assertEquals(2, stamps.map { it.cosObject }.toSet().size)
+                assertEquals(1, doc.pages.flatMap { imageObjects(it.resources) }.toSet().size)
+            }
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Latin and Cyrillic Text when Overlay with Executor then Text Stamps Are Compiled on Executor`() {
+        // Given
+        repeat(pageCount) { document.addPage(PDPage(PDRectangle(PDRectangle.A4.height, PDRectangle.A4.width))) }
+        val pool = Executors.newFixedThreadPool(2)
+        val submitted = AtomicInteger()
+        val executor = Executor { submitted.incrementAndGet(); pool.execute(it) }
+
+        try {
+            // When
+            val result = WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withText("WaterMarkIt").addTrademark().end()
+                    .position(WatermarkPosition.TILED).end()
+                    .method(WatermarkingMethod.OVERLAY)
+                .and()
+                    .withText("Конфиденциально").end()
+                    .method(WatermarkingMethod.OVERLAY)
+                .apply()
+
+            // Then
+            assertEquals(2, submitted.get())
+            assertEquals(true, validateWatermarkText(result, "WaterMarkIt"))
+            assertEquals(true, validateWatermarkText(result, "Конфиденциально"))
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Attributes Shared by Two Documents when Overlay Cyrillic Text then Each Document Keeps Its Font`() {
+        // Given
+        val attrs = listOf(WatermarkAttributes(text = "Водяной знак", method = WatermarkingMethod.OVERLAY))
+        val watermarker = DefaultOverlayPdfWatermarker()
+
+        PDDocument().use { other ->
+            other.addPage(PDPage(PDRectangle.A4))
+            val resources = DocumentResourcePool(document)
+            val otherResources = DocumentResourcePool(other)
+
+            // When
+            watermarker.watermark(document, document.getPage(0), attrs, resources)
+            watermarker.watermark(other, other.getPage(0), attrs, otherResources)
+
+            // Then
+            assertNull(attrs.single().cyrillicFont, "The attributes should not hold the font of a document")
+            assertNotSame(resources.font(attrs.single()), otherResources.font(attrs.single()))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Two Documents when Overlay Latin Text then Each Document Gets Its Own Standard Font`() {
+        // Given
+        val attrs = listOf(WatermarkAttributes(text = "WaterMarkIt", method = WatermarkingMethod.OVERLAY))
+        val watermarker = DefaultOverlayPdfWatermarker()
+
+        PDDocument().use { other ->
+            other.addPage(PDPage(PDRectangle.A4))
+            val resources = DocumentResourcePool(document)
+            val otherResources = DocumentResourcePool(other)
+
+            // When
+            watermarker.watermark(document, document.getPage(0), attrs, resources)
+            watermarker.watermark(other, other.getPage(0), attrs, otherResources)
+
+            // Then
+            val font = resources.font(attrs.single())
+            assertNotSame(PDType1Font.HELVETICA, font)
+            assertNotSame(font, otherResources.font(attrs.single()))
+            assertEquals(PDType1Font.HELVETICA.name, font.name)
+        }
+        val result = ByteArrayOutputStream().also { document.save(it) }.toByteArray()
+        assertEquals(true, validateWatermarkText(result, "WaterMarkIt"))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Page Level Overlay Watermarker when Stamp Page then Stamp Carries Its Watermark`() {
+        // Given
+        val attrs = listOf(WatermarkAttributes(text = "WaterMarkIt", method = WatermarkingMethod.OVERLAY))
+        val stampWatermarker = DefaultOverlayPdfWatermarker()
+        val legacyWatermarker = object : OverlayPdfWatermarker {
+            override fun watermark(document: PDDocument, pageIndex: Int, attrs: List<WatermarkAttributes>) =
+                stampWatermarker.watermark(document, pageIndex, attrs)
+
+            override fun getPriority() = 0
+        }
+
+        // When
+        val stamp = OverlayStamps.stamp(legacyWatermarker, document, document.getPage(0), attrs,
+            DocumentResourcePool(document))
+
+        // Then
+        assertEquals(pageCount, document.numberOfPages, "The blank page should be removed")
+        assertEquals(true, StampMarker.isMarked(stamp.cosObject))
+        assertEquals(PDRectangle.A4.width, stamp.bBox.width)
+        assertEquals(1, stamp.resources.xObjectNames.count())
+    }
+
+    private fun imageObjects(resources: PDResources): List<COSBase> =
+        resources.xObjectNames.flatMap { name ->
+            when (val xObject = resources.getXObject(name)) {
+                is PDImageXObject -> listOf(xObject.cosObject)
+                is PDFormXObject -> imageObjects(xObject.resources)
+                else -> emptyList()
+            }
+        }
+}
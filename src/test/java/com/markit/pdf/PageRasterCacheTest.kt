@@ -0,0 +1,109 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.pdf.draw.PageRasterCache
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.PDPageContentStream
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.font.PDType1Font
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executors
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+
+class PageRasterCacheTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = termsAndConditions()
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Documents with the Same Page when Draw with Shared Cache then Page Is Rendered Once`() {
+        // Given
+        val cache = PageRasterCache(10_000_000)
+
+        // When
+        val first = drawWatermark(document, "Confidential", cache)
+        val second = termsAndConditions().use { drawWatermark(it, "Confidential", cache) }
+        termsAndConditions().use { drawWatermark(it, "Draft", cache) }
+
+        // Then
+        assertEquals(1, cache.hits)
+        assertEquals(2, cache.misses)
+        assertContentEquals(raster(first), raster(second))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Small Memory Tier when Draw with Shared Cache then Raster Is Served from Disk`(@TempDir directory: File) {
+        // Given
+        val cache = PageRasterCache(0, directory, 10_000_000)
+
+        // When
+        val first = drawWatermark(document, "Confidential", cache)
+        val second = termsAndConditions().use { drawWatermark(it, "Confidential", cache) }
+
+        // Then
+        assertEquals(1, cache.hits)
+        assertEquals(1, directory.listFiles()!!.size)
+        assertContentEquals(raster(first), raster(second))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Small Memory Tier when Draw the Same Page Concurrently then Raster Is Written to Disk Once`(@TempDir directory: File) {
+        // Given
+        val cache = PageRasterCache(0, directory, 10_000_000)
+        val executor = Executors.newFixedThreadPool(4)
+
+        // When
+        try {
+            (1..8).map {
+                executor.submit { termsAndConditions().use { drawWatermark(it, "Confidential", cache) } }
+            }.forEach { it.get() }
+        } finally {
+            executor.shutdown()
+        }
+
+        // Then
+        assertEquals(listOf("raster"), directory.listFiles()!!.map { it.extension })
+    }
+
+    private fun termsAndConditions() = PDDocument().apply {
+        val page = PDPage(PDRectangle.A6).also { addPage(it) }
+        PDPageContentStream(this, page).use {
+            it.beginText()
+            it.setFont(PDType1Font.HELVETICA, 12f)
+            it.newLineAtOffset(20f, 20f)
+            it.showText("Terms and conditions")
+            it.endText()
+        }
+    }
+
+    private fun drawWatermark(document: PDDocument, text: String, cache: PageRasterCache): ByteArray =
+        WatermarkService.create()
+            .watermarkPDF(document)
+                .withText(text).end()
+                .method(WatermarkingMethod.DRAW)
+                .dpi(72)
+                .rasterCache(cache)
+            .apply()
+
+    private fun raster(result: ByteArray): ByteArray =
+        PDDocument.load(result).use { doc ->
+            val page = doc.getPage(0)
+            page.resources.xObjectNames.map { page.resources.getXObject(it) }
+                .filterIsInstance<PDImageXObject>()
+                .single { it.cosObject.getCOSName(COSName.FILTER) == COSName.DCT_DECODE }
+                .stream.toByteArray()
+        }
+}
@@ -0,0 +1,57 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.formats.pdf.PdfMemoryPolicy
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executors
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class PdfMemoryPolicyTest : WatermarkPdfTest() {
+    private lateinit var pdfBytes: ByteArray
+
+    @TempDir
+    lateinit var scratchDirectory: File
+
+    @BeforeEach
+    override fun initDocument() {
+        pdfBytes = PDDocument().use { doc ->
+            repeat(4) { doc.addPage(PDPage(PDRectangle.A4)) }
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Memory Policy when Draw and Overlay with Executor then Scratch Files Are Removed`() {
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            // When
+            val result = WatermarkService.create(executor)
+                .watermarkPDF(pdfBytes, PdfMemoryPolicy(64 * 1024, scratchDirectory))
+                    .withText("WaterMarkIt").end()
+                    .method(WatermarkingMethod.DRAW)
+                    .dpi(72)
+                .and()
+                    .withText("Confidential").end()
+                    .method(WatermarkingMethod.OVERLAY)
+                .apply()
+
+            // Then
+            assertTrue(validatePageCount(result, 4))
+            assertTrue(validateWatermarkText(result, "Confidential"))
+            assertEquals(0, scratchDirectory.listFiles()!!.size, "Scratch files should be deleted after the job")
+        } finally {
+            executor.shutdown()
+        }
+    }
+}
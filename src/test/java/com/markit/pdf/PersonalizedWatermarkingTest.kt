@@ -0,0 +1,132 @@
+package com.markit.pdf
+
+import com.markit.api.ByteArraySink
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.formats.pdf.WatermarkPDFService
+import org.apache.pdfbox.cos.COSName
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.text.PDFTextStripper
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.stream.Stream
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class PersonalizedWatermarkingTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            addPage(PDPage(PDRectangle.A4))
+            addPage(PDPage(PDRectangle.A4))
+            addPage(PDPage(PDRectangle(PDRectangle.A4.height, PDRectangle.A4.width)))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Apply for Each Recipient then Every Copy Carries Its Recipient`() {
+        // Given
+        val copies = LinkedHashMap<String, ByteArraySink>()
+
+        // When
+        WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .and()
+                .withText("Licensed to ${WatermarkPDFService.RECIPIENT}").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .size(20)
+            .applyForEach(Stream.of("alice@example.com", "bob@example.com")) { copies.getOrPut(it) { ByteArraySink() } }
+
+        // Then
+        val alice = copies.getValue("alice@example.com").toByteArray()
+        val bob = copies.getValue("bob@example.com").toByteArray()
+        val base = alice.indices.first { alice[it] != bob[it] }
+        assertTrue(base > alice.size - base, "The copies should share the base file")
+        listOf(alice to "alice@example.com", bob to "bob@example.com").forEach { (copy, recipient) ->
+            PDDocument.load(copy).use { doc ->
+                assertTrue(doc.document.trailer.containsKey(COSName.PREV))
+                (1..3).forEach { page ->
+                    val text = pageText(doc, page)
+                    assertTrue(text.contains("Confidential"), "Page $page")
+                    assertTrue(text.contains("Licensed to $recipient"), "Page $page")
+                }
+            }
+        }
+        assertFalse(PDDocument.load(alice).use { pageText(it, 1) }.contains("bob@example.com"))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Apply for Each Cyrillic Recipient with Executor then Copies Are Written in Parallel`() {
+        // Given
+        val executor = Executors.newFixedThreadPool(4)
+        val recipients = (1..20).map { "Получатель $it" }
+        val copies = ConcurrentHashMap<String, ByteArraySink>()
+
+        // When
+        try {
+            WatermarkService.create(executor)
+                .watermarkPDF(document)
+                    .withText(WatermarkPDFService.RECIPIENT).end()
+                    .method(WatermarkingMethod.OVERLAY)
+                .applyForEach(recipients.stream()) { copies.computeIfAbsent(it) { ByteArraySink() } }
+        } finally {
+            executor.shutdown()
+        }
+
+        // Then
+        assertEquals(recipients.toSet(), copies.keys)
+        recipients.forEach { recipient ->
+            val copy = copies.getValue(recipient).toByteArray()
+            assertXrefOffsets(copy)
+            PDDocument.load(copy).use { doc ->
+                assertTrue(pageText(doc, 3).contains(recipient), recipient)
+            }
+        }
+    }
+
+    /**
+     * Follows the cross-reference sections from the end of the file, without the lenient parser of PDFBox,
+     * which would silently repair a wrong offset
+     */
+    private fun assertXrefOffsets(file: ByteArray) {
+        val text = String(file, Charsets.ISO_8859_1)
+        var xrefOffset: Int? = Regex("""startxref\s+(\d+)\s+%%EOF\s*$""").find(text)!!.groupValues[1].toInt()
+        var sections = 0
+        while (xrefOffset != null) {
+            assertTrue(text.startsWith("xref", xrefOffset), "No xref at $xrefOffset")
+            val trailerOffset = text.indexOf("trailer", xrefOffset)
+            val lines = text.substring(xrefOffset + "xref".length, trailerOffset).trim().lines().map { it.trim() }
+            var i = 0
+            while (i < lines.size) {
+                val (first, count) = lines[i++].split(" ").map { it.toInt() }
+                repeat(count) { n ->
+                    val (offset, generation, type) = lines[i++].split(" ")
+                    if (type == "n") {
+                        val header = "${first + n} ${generation.toInt()} obj"
+                        assertTrue(text.startsWith(header, offset.toInt()), "No '$header' at $offset")
+                    }
+                }
+            }
+            sections++
+            xrefOffset = Regex("""/Prev\s+(\d+)""").find(text.substring(trailerOffset, text.indexOf(">>", trailerOffset)))
+                ?.groupValues?.get(1)?.toInt()
+        }
+        assertEquals(2, sections)
+    }
+
+    private fun pageText(doc: PDDocument, page: Int): String =
+        PDFTextStripper().apply {
+            startPage = page
+            endPage = page
+        }.getText(doc)
+}
@@ -0,0 +1,80 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.text.PDFTextStripper
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ReplaceWatermarkTest : WatermarkPdfTest() {
+    private lateinit var draft: ByteArray
+
+    @BeforeEach
+    override fun initDocument() {
+        val original = PDDocument().use { doc ->
+            repeat(3) { doc.addPage(PDPage(PDRectangle.A4)) }
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+        draft = WatermarkService.create()
+            .watermarkPDF(original)
+                .withText("DRAFT").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .apply()
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Watermarked Pdf when Replace Watermark then Only the Stamps Are Swapped`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(draft)
+                .withText("FINAL").end()
+                .method(WatermarkingMethod.OVERLAY)
+                .pageFilter { it != 1 }
+            .replaceWatermark()
+
+        // Then
+        assertTrue(draft.contentEquals(result.copyOf(draft.size)), "The watermarked file should be a prefix of the result")
+        PDDocument.load(result).use { doc ->
+            assertEquals(listOf(true, false, true), (1..3).map { pageText(doc, it).contains("FINAL") })
+            assertFalse((1..3).any { pageText(doc, it).contains("DRAFT") })
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Watermarked Pdf when Remove and Replace Watermark then Watermark Is Restored`() {
+        // When
+        val removed = WatermarkService.create().watermarkPDF(draft).removeWatermark()
+        val result = WatermarkService.create()
+            .watermarkPDF(removed)
+                .withText("FINAL").end()
+                .method(WatermarkingMethod.OVERLAY)
+            .replaceWatermark()
+
+        // Then
+        PDDocument.load(removed).use { doc ->
+            assertEquals(3, doc.numberOfPages)
+            assertFalse(PDFTextStripper().getText(doc).contains("DRAFT"))
+        }
+        PDDocument.load(result).use { doc ->
+            assertTrue((1..3).all { pageText(doc, it).contains("FINAL") })
+            // the removed stamps were replaced, no new content was appended
+            assertEquals(PDDocument.load(draft).use { it.getPage(0).contentStreams.asSequence().count() }, doc.getPage(0).contentStreams.asSequence().count())
+        }
+    }
+
+    private fun pageText(doc: PDDocument, page: Int): String =
+        PDFTextStripper().apply {
+            startPage = page
+            endPage = page
+        }.getText(doc)
+}
@@ -0,0 +1,57 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class SkipWatermarkedTest : WatermarkPdfTest() {
+    private lateinit var watermarked: ByteArray
+
+    @BeforeEach
+    override fun initDocument() {
+        val original = PDDocument().use { doc ->
+            repeat(2) { doc.addPage(PDPage(PDRectangle.A4)) }
+            ByteArrayOutputStream().also { doc.save(it) }.toByteArray()
+        }
+        watermarked = watermark(original, "Confidential")
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Watermarked Pdf when Apply the Same Watermark then Pdf Is Returned Unchanged`() {
+        // When
+        val result = watermark(watermarked, "Confidential")
+
+        // Then
+        assertTrue(watermarked.contentEquals(result))
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Watermarked Pdf when Apply Another Watermark then Pdf Is Watermarked`() {
+        // When
+        val result = watermark(watermarked, "FINAL")
+
+        // Then
+        assertFalse(watermarked.contentEquals(result))
+        assertTrue(validateWatermarkText(result, "FINAL"))
+        assertEquals(result.size, watermark(result, "FINAL").size)
+    }
+
+    private fun watermark(file: ByteArray, text: String): ByteArray =
+        WatermarkService.create()
+            .watermarkPDF(file)
+                .withText(text).end()
+                .method(WatermarkingMethod.OVERLAY)
+                .skipIfAlreadyWatermarked()
+            .apply()
+}
@@ -0,0 +1,115 @@
+package com.markit.pdf
+
+import com.markit.api.WatermarkService
+import com.markit.api.WatermarkingMethod
+import com.markit.api.positioning.WatermarkPosition
+import com.markit.utils.FileUtils
+import org.apache.pdfbox.pdmodel.PDDocument
+import org.apache.pdfbox.pdmodel.PDPage
+import org.apache.pdfbox.pdmodel.common.PDRectangle
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern
+import org.apache.pdfbox.rendering.PDFRenderer
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.awt.Color
+import java.io.IOException
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class TilingPatternWatermarkTest : WatermarkPdfTest() {
+    @BeforeEach
+    override fun initDocument() {
+        document = PDDocument().apply {
+            addPage(PDPage(PDRectangle.A3))
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Tiled Rotated Text with Tiling Pattern then Page Is Filled by One Pattern`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .position(WatermarkPosition.TILED)
+                    .horizontalSpacing(20)
+                    .verticalSpacing(20).end()
+                .size(20)
+                .method(WatermarkingMethod.OVERLAY)
+                .rotation(45)
+                .tilingPattern()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val stamp = stamp(doc.getPage(0))
+            val patterns = stamp.resources.patternNames.map { stamp.resources.getPattern(it) }
+            assertEquals(1, patterns.size)
+            assertTrue(patterns.first() is PDTilingPattern)
+            assertTrue(hasWatermarkPixels(doc), "The pattern should be painted on the page")
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf when Tiled Image with Tiling Pattern then Page Is Filled by One Pattern`() {
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withImage(FileUtils.readFileFromClasspathAsBytes("logo.png"))
+                .position(WatermarkPosition.TILED).end()
+                .size(25)
+                .method(WatermarkingMethod.OVERLAY)
+                .tilingPattern()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val stamp = stamp(doc.getPage(0))
+            assertEquals(1, stamp.resources.patternNames.count())
+            assertTrue(hasWatermarkPixels(doc), "The pattern should be painted on the page")
+        }
+    }
+
+    @Test
+    @Throws(IOException::class)
+    fun `given Pdf with Offset MediaBox when Tiled Text with Tiling Pattern then Whole Page Is Filled`() {
+        // Given
+        val offset = PDRectangle(200f, 200f, PDRectangle.A4.width, PDRectangle.A4.height)
+        val page = PDPage(offset)
+        document.removePage(0)
+        document.addPage(page)
+
+        // When
+        val result = WatermarkService.create()
+            .watermarkPDF(document)
+                .withText("Confidential").end()
+                .position(WatermarkPosition.TILED)
+                    .horizontalSpacing(10)
+                    .verticalSpacing(10).end()
+                .size(20)
+                .method(WatermarkingMethod.OVERLAY)
+                .tilingPattern()
+            .apply()
+
+        // Then
+        PDDocument.load(result).use { doc ->
+            val image = PDFRenderer(doc).renderImageWithDPI(0, 36f)
+            // the upper strip of the page lies beyond a fill that starts at the origin
+            val strip = 0 until image.height * 200 / PDRectangle.A4.height.toInt()
+            assertTrue(strip.any { y -> (0 until image.width).any { x -> image.getRGB(x, y) != Color.WHITE.rgb } },
+                "The pattern should cover the upper strip of the page")
+        }
+    }
+
+    private fun stamp(page: PDPage): PDFormXObject =
+        page.resources.xObjectNames.map { page.resources.getXObject(it) }.filterIsInstance<PDFormXObject>().single()
+
+    private fun hasWatermarkPixels(doc: PDDocument): Boolean {
+        val image = PDFRenderer(doc).renderImageWithDPI(0, 36f)
+        return (0 until image.width).any { x ->
+            (0 until image.height).any { y -> image.getRGB(x, y) != Color.WHITE.rgb }
+        }
+    }
+}